@@ -23,11 +23,21 @@ import com.datastax.oss.driver.api.core.session.Session;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 import static io.github.rtib.cmc.PropertyHelper.CONFIG_ROOT_SECTION;
+import io.github.rtib.cmc.collectors.CardinalityBudget;
 import io.github.rtib.cmc.collectors.CollectorException;
+import io.github.rtib.cmc.collectors.HashedWheelScheduler;
 import io.github.rtib.cmc.collectors.ICollector;
+import io.github.rtib.cmc.collectors.LoadGovernor;
+import io.github.rtib.cmc.collectors.PhasePlanner;
+import io.github.rtib.cmc.collectors.ScrapeTrigger;
+import io.github.rtib.cmc.collectors.TableCatalog;
+import io.github.rtib.cmc.exporter.ScrapeCache;
 import io.github.rtib.cmc.metrics.Label;
 import io.github.rtib.cmc.metrics.LabelListBuilder;
+import io.github.rtib.cmc.metrics.LabelRegistry;
+import io.github.rtib.cmc.metrics.Metric;
 import io.github.rtib.cmc.metrics.MetricException;
+import io.github.rtib.cmc.metrics.Repository;
 import io.github.rtib.cmc.model.DaoSystem;
 import io.github.rtib.cmc.model.DaoSystemSchema;
 import io.github.rtib.cmc.model.DaoSystemVirtualSchema;
@@ -35,6 +45,7 @@ import io.github.rtib.cmc.model.MapperSystem;
 import io.github.rtib.cmc.model.MapperSystemSchema;
 import io.github.rtib.cmc.model.MapperSystemVirtualSchema;
 import io.github.rtib.cmc.model.system.SystemInfo;
+import io.github.rtib.cmc.model.system_virtual_schema.Tables;
 import java.io.IOException;
 import java.net.Inet4Address;
 import java.net.InetSocketAddress;
@@ -42,12 +53,18 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
 import java.util.ServiceLoader;
+import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -106,6 +123,42 @@ public final class Context implements NodeStateListener {
      */
     public ScheduledExecutorService queryExecutor;
     
+    /**
+     * Scheduler dispatching the periodic metrics collection tasks.
+     */
+    public HashedWheelScheduler collectionScheduler;
+    
+    /**
+     * Planner of the phase offsets of collection tasks.
+     */
+    public PhasePlanner phasePlanner;
+    
+    /**
+     * Admission control of the collection queries.
+     */
+    public LoadGovernor loadGovernor;
+    
+    /**
+     * Trigger of collection cycles on scrape, null unless collecting on scrape.
+     */
+    public ScrapeTrigger scrapeTrigger;
+    
+    /**
+     * Names of the virtual tables within system_views, resolved by a single
+     * query before activating the collectors. Null until resolved.
+     */
+    public volatile Set<String> systemViews;
+    
+    /**
+     * Catalog of tables shared by the table collectors.
+     */
+    public final TableCatalog tableCatalog = new TableCatalog();
+    
+    /**
+     * List of collectors activated.
+     */
+    public final List<ICollector> activeCollectors = new CopyOnWriteArrayList<>();
+    
     /**
      * Project properties `application-name` and `application-version`
      */
@@ -137,6 +190,12 @@ public final class Context implements NodeStateListener {
         if ((adminTaskExecutor != null) && !adminTaskExecutor.isShutdown())
             adminTaskExecutor.shutdown();
         
+        if ((activationExecutor != null) && !activationExecutor.isShutdown())
+            activationExecutor.shutdown();
+        
+        if (collectionScheduler != null)
+            collectionScheduler.stop();
+        
         if ((queryExecutor != null) && !queryExecutor.isShutdown())
             queryExecutor.shutdown();
         
@@ -171,9 +230,12 @@ public final class Context implements NodeStateListener {
     private static final String CONFIG_RELOAD_INTERVAL = "config-reload-interval";
     private final ScheduledExecutorService adminScheduledTaskExecutor;
     private final ExecutorService adminTaskExecutor;
+    private ExecutorService activationExecutor;
     
     private InetSocketAddress contactPoint;
     private ScheduledFuture<?> configReloadScheduler;
+    private ScheduledFuture<?> tableCatalogReconciler;
+    private ScheduledFuture<?> staleSeriesEvictor;
     private Duration configReloadInterval = Duration.ZERO;
 
     private Context() {
@@ -191,6 +253,10 @@ public final class Context implements NodeStateListener {
         LOG.info("Loading root configuration section: {}", CONFIG_ROOT_SECTION.getString());
         ConfigFactory.invalidateCaches();
         rootConfig = ConfigFactory.load().getConfig(CONFIG_ROOT_SECTION.getString());
+        Metric.Builder.setOffHeapDefault(rootConfig.getBoolean("series-store.off-heap"));
+        Metric.Builder.setHistoryDefault(rootConfig.getBoolean("series-store.history.enabled")
+                ? rootConfig.getDuration("series-store.history.retention")
+                : Duration.ZERO);
         
         if (configReloadInterval != rootConfig.getDuration(CONFIG_RELOAD_INTERVAL)) {
             configReloadInterval = rootConfig.getDuration(CONFIG_RELOAD_INTERVAL);
@@ -235,6 +301,7 @@ public final class Context implements NodeStateListener {
             CqlSession.builder()
                 .addContactPoint(contactPoint)
                 .addNodeStateListener(new SafeInitNodeStateListener(this, false))
+                .addSchemaChangeListener(tableCatalog)
                 .withNodeDistanceEvaluator(new NodeDiscrimiator(contactPoint))
                 .withApplicationName(projectProperties.getProperty("application-name"))
                 .withApplicationVersion(projectProperties.getProperty("application-version"))
@@ -247,25 +314,61 @@ public final class Context implements NodeStateListener {
         @Override
         public void run() {
             // ToDo: put collector activation into a recurring task of admin executor
+            resolveSystemViews();
+            if (activationExecutor == null)
+                activationExecutor = Executors.newFixedThreadPool(rootConfig.getInt("collector-activation-parallelism"));
+            List<CompletableFuture<Void>> activations = new ArrayList<>();
             for (ICollector collector : ServiceLoader.load(ICollector.class)) {
                 LOG.debug("Collector {} is enabled: {}", collector.getClass().getSimpleName(), collector.isEnabled());
                 if (!collector.isEnabled())
                     continue;
                 
-                try {
-                    LOG.info("Activating collector: {}, enabled: {}", collector.getClass().getSimpleName(), collector.isEnabled());
-                    collector.activate();
-                } catch (CollectorException ex) {
-                    LOG.atWarn().setCause(ex).log("Failed to activate {}", collector.getClass().getSimpleName());
-                }
+                activations.add(CompletableFuture.runAsync(() -> activate(collector), activationExecutor));
+            }
+            CompletableFuture.allOf(activations.toArray(CompletableFuture<?>[]::new)).join();
+            // tasks registered by all collectors are planned in order on the first tick
+            collectionScheduler.start();
+            LOG.info("{} of {} enabled collectors activated.", activeCollectors.size(), activations.size());
+        }
+
+        private void activate(ICollector collector) {
+            try {
+                LOG.info("Activating collector: {}, enabled: {}", collector.getClass().getSimpleName(), collector.isEnabled());
+                collector.activate();
+                if (collector.isActive())
+                    activeCollectors.add(collector);
+            } catch (CollectorException | RuntimeException ex) {
+                LOG.atWarn().setCause(ex).log("Failed to activate {}", collector.getClass().getSimpleName());
             }
-        }        
+        }
+
+        private void resolveSystemViews() {
+            try {
+                Set<String> views = new HashSet<>();
+                for (Tables table : systemVirtualSchemaDao.listTables("system_views"))
+                    views.add(table.table_name());
+                systemViews = Set.copyOf(views);
+                LOG.debug("Virtual tables available in system_views: {}", systemViews);
+            } catch (RuntimeException ex) {
+                LOG.atWarn().setCause(ex).log("Failed to list system_views, resolving availability per collector.");
+            }
+        }
     }
         
     protected final class SessionSetup implements Runnable {
 
         @Override
         public void run() {
+            // collectors of a previous session are bound to its executor and scheduler
+            for (ICollector collector : activeCollectors) {
+                try {
+                    collector.deactivate();
+                } catch (RuntimeException ex) {
+                    LOG.atWarn().setCause(ex).log("Failed to deactivate {}", collector.getClass().getSimpleName());
+                }
+            }
+            activeCollectors.clear();
+            scrapeTrigger = null;
             systemDao = MapperSystem
                     .builder(cqlSession)
                     .build()
@@ -303,10 +406,116 @@ public final class Context implements NodeStateListener {
                 LOG.atError().log("Failed to build common labels.", ex);
             }
             queryExecutor = new ScheduledThreadPoolExecutor(getConfigFor("queryExecutor").getInt("corePoolSize"));
+            try {
+                if (phasePlanner != null)
+                    Repository.getInstance().remove(phasePlanner.getMetric());
+                phasePlanner = new PhasePlanner(getConfigFor("phase-planner").getDuration("window"), commonLabels);
+                Repository.getInstance().add(phasePlanner.getMetric());
+            } catch (MetricException ex) {
+                LOG.atError().setCause(ex).log("Failed to create the phase planner.");
+            }
+            try {
+                LabelRegistry labelRegistry = LabelRegistry.getInstance();
+                if (labelRegistry.getMetric() != null)
+                    Repository.getInstance().remove(labelRegistry.getMetric());
+                Repository.getInstance().add(labelRegistry.createMetric(commonLabels));
+            } catch (MetricException ex) {
+                LOG.atError().setCause(ex).log("Failed to create the label interning metric.");
+            }
+            try {
+                CardinalityBudget.getMetrics().forEach(Repository.getInstance()::remove);
+                CardinalityBudget.createMetrics(commonLabels).forEach(Repository.getInstance()::add);
+            } catch (MetricException ex) {
+                LOG.atError().setCause(ex).log("Failed to create the cardinality budget metrics.");
+            }
+            try {
+                ScrapeCache scrapeCache = ScrapeCache.getInstance();
+                if (scrapeCache.getMetric() != null)
+                    Repository.getInstance().remove(scrapeCache.getMetric());
+                Repository.getInstance().add(scrapeCache.createMetric(commonLabels));
+            } catch (MetricException ex) {
+                LOG.atError().setCause(ex).log("Failed to create the scrape cache metric.");
+            }
+            Config governorConfig = getConfigFor("load-governor");
+            if (loadGovernor != null && loadGovernor.getMetric() != null)
+                Repository.getInstance().remove(loadGovernor.getMetric());
+            loadGovernor = governorConfig.getBoolean("enabled")
+                    ? new LoadGovernor(
+                            queryExecutor,
+                            governorConfig.getDouble("rate"),
+                            governorConfig.getInt("burst"),
+                            governorConfig.getInt("max-in-flight"),
+                            governorConfig.getInt("max-queued"),
+                            governorConfig.getDuration("shed-latency"))
+                    : LoadGovernor.unlimited();
+            try {
+                Repository.getInstance().add(loadGovernor.createMetric(commonLabels));
+            } catch (MetricException ex) {
+                LOG.atError().setCause(ex).log("Failed to create the load governor metric.");
+            }
+            Config schedulerConfig = getConfigFor("collectionScheduler");
+            collectionScheduler = new HashedWheelScheduler(
+                    queryExecutor,
+                    phasePlanner,
+                    schedulerConfig.getDuration("tick"),
+                    schedulerConfig.getInt("wheelSize"));
+            Config scrapeConfig = getConfigFor("collect-on-scrape");
+            if (scrapeConfig.getBoolean("enabled")) {
+                LOG.info("Collecting metrics on scrape, freshness {}", scrapeConfig.getDuration("freshness"));
+                scrapeTrigger = new ScrapeTrigger(
+                        activeCollectors,
+                        scrapeConfig.getDuration("freshness"),
+                        scrapeConfig.getDuration("timeout"));
+            }
+            reconcileTableCatalog();
+            Duration reconcileInterval = getConfigFor("table-catalog").getDuration("reconcile-interval");
+            if (tableCatalogReconciler != null)
+                tableCatalogReconciler.cancel(false);
+            tableCatalogReconciler = adminScheduledTaskExecutor.scheduleWithFixedDelay(
+                    new Thread(() -> reconcileTableCatalog()),
+                    reconcileInterval.toSeconds(),
+                    reconcileInterval.toSeconds(),
+                    TimeUnit.SECONDS);
+            Config stalenessConfig = getConfigFor("staleness");
+            if (staleSeriesEvictor != null)
+                staleSeriesEvictor.cancel(false);
+            if (stalenessConfig.getBoolean("enabled")) {
+                Duration ttl = stalenessTtl(stalenessConfig.getDuration("ttl"));
+                Duration evictionInterval = stalenessConfig.getDuration("eviction-interval");
+                staleSeriesEvictor = adminScheduledTaskExecutor.scheduleWithFixedDelay(
+                        new Thread(() -> Repository.getInstance().evictStale(ttl)),
+                        evictionInterval.toSeconds(),
+                        evictionInterval.toSeconds(),
+                        TimeUnit.SECONDS);
+            }
             adminTaskExecutor.execute(new CollectorActivator());
         }   
     }
 
+    /**
+     * Raise the staleness ttl to twice the longest collection interval, thus
+     * series are not evicted between two collections.
+     */
+    private Duration stalenessTtl(Duration ttl) {
+        Duration longest = rootConfig.getDuration("metrics-update-interval");
+        Config adaptiveConfig = getConfigFor("adaptive-interval");
+        if (adaptiveConfig.getBoolean("enabled") && adaptiveConfig.getDuration("max-interval").compareTo(longest) > 0)
+            longest = adaptiveConfig.getDuration("max-interval");
+        Duration floor = longest.multipliedBy(2);
+        if (ttl.compareTo(floor) >= 0)
+            return ttl;
+        LOG.warn("Staleness ttl {} is shorter than twice the longest collection interval, using {}.", ttl, floor);
+        return floor;
+    }
+
+    private void reconcileTableCatalog() {
+        try {
+            tableCatalog.reconcile(systemSchemaDao.listAllTables());
+        } catch (RuntimeException ex) {
+            LOG.atWarn().setCause(ex).log("Failed to reconcile table catalog.");
+        }
+    }
+
     @Override
     public void onAdd(Node node) {
         // that's simply not of interest here
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.collectors;
+
+import io.github.rtib.cmc.Context;
+import io.github.rtib.cmc.model.MetricsIdentifier;
+import io.github.rtib.cmc.model.system_schema.TableName;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collector task acquiring its metrics entity asynchronously. Running the task
+ * only issues the query, the metric instances are updated once the result
+ * arrives. The executing thread is never blocked waiting on Cassandra, so a
+ * few threads are able to keep many queries in flight.
+ *
+ * @param <T> type of the metrics entity
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public abstract class AbstractAsyncTask<T> extends Thread {
+    private static final Logger LOG = LoggerFactory.getLogger(AbstractAsyncTask.class);
+
+    /**
+     * Identifier of the instance this task is collecting metrics for.
+     */
+    protected final MetricsIdentifier id;
+
+    /**
+     * Create the task instance.
+     * @param id identifier of the instance metrics are collected for
+     */
+    protected AbstractAsyncTask(MetricsIdentifier id) {
+        super();
+        this.id = id;
+    }
+
+    @Override
+    public void run() {
+        execute();
+    }
+
+    /**
+     * Issue the query once admitted by the load governor and update the metric
+     * instances once the result arrived. Failures are logged, the returned
+     * stage always completes normally.
+     * @return stage completing when the metric instances are updated
+     */
+    public CompletionStage<Void> execute() {
+        Context context = Context.getInstance();
+        return context.loadGovernor.submit(priority(), this::query).handleAsync((entity, ex) -> {
+            if (ex instanceof RejectedExecutionException) {
+                LOG.debug("Query of {} not admitted: {}", id, ex.getMessage());
+                return null;
+            }
+            if (ex != null) {
+                LOG.atWarn().setCause(ex).log("Failed to acquire metrics of {}", id);
+                return null;
+            }
+            if (entity == null) {
+                LOG.debug("No metrics found for {}", id);
+                return null;
+            }
+            collect(entity);
+            return null;
+        }, context.queryExecutor);
+    }
+
+    /**
+     * Get the priority class of the query. Tasks of table bound metrics are
+     * of low priority.
+     * @return priority class
+     */
+    protected LoadGovernor.Priority priority() {
+        return id instanceof TableName ? LoadGovernor.Priority.TABLE : LoadGovernor.Priority.NODE;
+    }
+
+    /**
+     * Remove the metric instances of this task. Called once the task has been
+     * removed, e.g. as the table it collected metrics of has been dropped.
+     * Instances not removed here are exported until evicted as stale, which
+     * is disabled by default.
+     */
+    protected void release() {
+    }
+
+    /**
+     * Issue the query acquiring the metrics entity.
+     * @return stage completing with the metrics entity
+     */
+    protected abstract CompletionStage<? extends T> query();
+
+    /**
+     * Update the metric instances of this task from a metrics entity.
+     * @param entity the acquired metrics entity
+     */
+    protected abstract void collect(T entity);
+}
@@ -21,11 +21,13 @@ import io.github.rtib.cmc.metrics.MetricException;
 import io.github.rtib.cmc.model.MetricsIdentifier;
 import java.time.Duration;
 import java.util.Collection;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,7 +52,13 @@ public abstract class AbstractCollector implements ICollector {
     /**
      * Map of metric identifiers (things collecting metrics about) mapping the collector tasks.
      */
-    protected final Map<MetricsIdentifier,ScheduledFuture<?>> collectors = new ConcurrentHashMap<>();
+    protected final Map<MetricsIdentifier,HashedWheelScheduler.Timeout> collectors = new ConcurrentHashMap<>();
+    
+    /**
+     * Map of metric identifiers mapping the collector task instances, whether
+     * scheduled individually or driven by a bulk collection.
+     */
+    protected final Map<MetricsIdentifier,AbstractAsyncTask<?>> tasks = new ConcurrentHashMap<>();
     
     /**
      * Keyspace of the source table's keyspace.
@@ -89,13 +97,8 @@ public abstract class AbstractCollector implements ICollector {
 
     @Override
     public void activate() throws CollectorException {
-        Duration updateInterval = config.getUpdateInterval();
-        LOG.info("Starting {} update task with interval {}", this.getClass().getSimpleName(), updateInterval);
-        updateTask = context.queryExecutor.scheduleAtFixedRate(
-                new Thread(() -> update()),
-                ThreadLocalRandom.current().nextLong(config.getUpdateInitialDelay().toSeconds()),
-                updateInterval.getSeconds(), TimeUnit.SECONDS);
         setup();
+        startUpdates();
         active = true;
     }
 
@@ -103,53 +106,104 @@ public abstract class AbstractCollector implements ICollector {
     public void deactivate() {
         active = false;
         LOG.info("Shutting down {}", this.getClass().getSimpleName());
-        if ((updateTask != null) || !updateTask.isCancelled())
-            updateTask.cancel(true);
+        stopUpdates();
         clearCollectors();
     }
 
+    /**
+     * Start keeping the collector tasks in line with the instances to be
+     * collected. By default, the instances are polled on the update interval.
+     */
+    protected void startUpdates() {
+        Duration updateInterval = config.getUpdateInterval();
+        LOG.info("Starting {} update task with interval {}", this.getClass().getSimpleName(), updateInterval);
+        updateTask = context.queryExecutor.scheduleAtFixedRate(
+                new Thread(() -> update()),
+                context.phasePlanner.offset(this, "update", config.getUpdateInitialDelay()).toSeconds(),
+                updateInterval.getSeconds(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop keeping the collector tasks in line with the instances.
+     */
+    protected void stopUpdates() {
+        if ((updateTask != null) && !updateTask.isCancelled())
+            updateTask.cancel(true);
+    }
+
     @Override
     public boolean isAvailable() {
+        if (context.systemViews != null)
+            return context.systemViews.contains(TABLE);
         return context.systemVirtualSchemaDao.tables(KEYSPACE, TABLE) != null;
     }
+
+    @Override
+    public CompletionStage<Void> collect() {
+        return CompletableFuture.allOf(tasks.values()
+                .stream()
+                .map(task -> task.execute().toCompletableFuture())
+                .toArray(CompletableFuture<?>[]::new));
+    }
+    
+    /**
+     * Whether this collector is acquiring all instances with a single query
+     * instead of scheduling a task per instance.
+     * @return true if collecting in bulk
+     */
+    protected boolean isBulkCollection() {
+        return false;
+    }
     
     /**
-     * Add a collector task. A collector task is a Thread instance collecting metrics.
+     * Add a collector task. A collector task is an AbstractAsyncTask instance collecting metrics.
      * Once added, the task will be scheduled for execution at a fixed rate on
-     * the query executor pool of the context.
+     * the collection scheduler of the context, phased by the planner, unless the collector is collecting
+     * in bulk or metrics are collected on scrape.
      * @param id the MetricsIdentifier to identify the collector
-     * @param task the Thread instance implementing the collector
+     * @param task the task instance implementing the collector
      * @param interval interval the task is scheduled at
      * @return true in case of success or false if the task is already registered
      */
-    boolean addCollector(MetricsIdentifier id, Thread task, Duration interval) {
-        if (collectors.containsKey(id))
+    boolean addCollector(MetricsIdentifier id, AbstractAsyncTask<?> task, Duration interval) {
+        if (tasks.putIfAbsent(id, task) != null)
             return false;
         
+        if (isBulkCollection() || context.scrapeTrigger != null) {
+            LOG.info("Engaged {} unscheduled task for: {}", this.getClass().getSimpleName(), id);
+            return true;
+        }
+        
         collectors.put(
                 id, 
-                context.queryExecutor.scheduleAtFixedRate(
-                        task,
-                        ThreadLocalRandom.current().nextLong(interval.toSeconds()),
-                        interval.toSeconds(),
-                        TimeUnit.SECONDS)
+                context.collectionScheduler.schedule(
+                        this,
+                        id,
+                        task::execute,
+                        interval,
+                        () -> 1)
         );
         LOG.info("Engaged {} task for: {}", this.getClass().getSimpleName(), id);
         return true;
     }
     
     /**
-     * Remove a collector task. The task is canceled and removed from the scheduler.
+     * Remove a collector task. The task is canceled and removed from the
+     * scheduler, its metric instances are released.
      * @param id MetricsIdentifier to identify the task to be removed
      */
     void removeCollector(MetricsIdentifier id) {
-        ScheduledFuture<?> task = collectors.get(id);
-        if (task == null)
+        AbstractAsyncTask<?> removed = tasks.remove(id);
+        if (removed == null)
             return;
         
         LOG.info("Ceasing {} task for: {}", this.getClass().getSimpleName(), id);
-        task.cancel(false);
-        collectors.remove(id);
+        HashedWheelScheduler.Timeout task = collectors.remove(id);
+        if (task != null) {
+            task.cancel();
+            context.phasePlanner.release(this, id);
+        }
+        removed.release();
     }
     
     /**
@@ -158,7 +212,7 @@ public abstract class AbstractCollector implements ICollector {
      * @param ids collection of identifiers to be retained
      */
     void retainAllCollectors(Collection<? extends MetricsIdentifier> ids) {
-        for (var collector : collectors.keySet()) {
+        for (var collector : tasks.keySet()) {
             if (ids.contains(collector))
                 continue;
             
@@ -170,24 +224,27 @@ public abstract class AbstractCollector implements ICollector {
      * Cancel and remove all collector tasks.
      */
     void clearCollectors() {
-        collectors.values().forEach((ScheduledFuture<?> t) -> t.cancel(true));
+        collectors.values().forEach(HashedWheelScheduler.Timeout::cancel);
+        collectors.keySet().forEach(id -> context.phasePlanner.release(this, id));
         collectors.clear();
+        tasks.clear();
     }
 
     /**
-     * This is to create a thread instance implementing the collector task for
+     * This is to create a task instance implementing the collector task for
      * a given instance.
      * @param id identifier which metrics are to be collected.
-     * @return the collector thread.
+     * @return the collector task.
      * @throws MetricException wrapping exceptions from creating labels
      */
-    protected abstract Thread createCollectorTask(MetricsIdentifier id) throws MetricException;
+    protected abstract AbstractAsyncTask<?> createCollectorTask(MetricsIdentifier id) throws MetricException;
 
     /**
-     * Get the list of instances to be collected by this collector.
-     * @return List of instance identifiers.
+     * Get the instances to be collected by this collector. The instances may
+     * be streamed page by page while iterating.
+     * @return Iterable of instance identifiers.
      */
-    protected abstract List<? extends MetricsIdentifier> getInstances();
+    protected abstract Iterable<? extends MetricsIdentifier> getInstances();
     
     /**
      * Called during activate() to do optional setup of an collector instance.
@@ -204,14 +261,12 @@ public abstract class AbstractCollector implements ICollector {
      */
     protected void update() {
         LOG.debug("Updating collector tasks of {}", this.getClass().getSimpleName());
-        List<? extends MetricsIdentifier> instanceList = getInstances();
-        LOG.debug("Found tables: {}", instanceList);
-        retainAllCollectors(instanceList);
-        int numKept = collectors.size();
+        Set<MetricsIdentifier> found = new HashSet<>();
         int numNew = 0;
-        for (MetricsIdentifier instance : instanceList) {
+        for (MetricsIdentifier instance : getInstances()) {
             LOG.debug("Checking {}", instance);
-            if (collectors.containsKey(instance)) {
+            found.add(instance);
+            if (tasks.containsKey(instance)) {
                 continue;
             }
             try {
@@ -222,7 +277,9 @@ public abstract class AbstractCollector implements ICollector {
                 throw new RuntimeException(ex);
             }
         }
-        LOG.info("{} tasks updated: {} kept, {} created, {} overall engaged.", this.getClass().getSimpleName(), numKept, numNew, collectors.size());
+        retainAllCollectors(found);
+        int numKept = found.size() - numNew;
+        LOG.info("{} tasks updated: {} kept, {} created, {} overall engaged.", this.getClass().getSimpleName(), numKept, numNew, tasks.size());
     }
     
     /**
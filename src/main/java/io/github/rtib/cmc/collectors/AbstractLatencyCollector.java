@@ -15,6 +15,7 @@
  */
 package io.github.rtib.cmc.collectors;
 
+import com.datastax.oss.driver.api.core.MappedAsyncPagingIterable;
 import io.github.rtib.cmc.metrics.Label;
 import io.github.rtib.cmc.metrics.LabelListBuilder;
 import io.github.rtib.cmc.metrics.Metric;
@@ -24,9 +25,8 @@ import io.github.rtib.cmc.metrics.Repository;
 import io.github.rtib.cmc.model.MetricsIdentifier;
 import io.github.rtib.cmc.model.system_schema.TableName;
 import io.github.rtib.cmc.model.system_views.Latency;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletionStage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,6 +42,13 @@ public abstract class AbstractLatencyCollector extends AbstractTableCollector {
     private Metric metricCount;
     private Metric metricMax;
     private Metric metricRate;
+    private final CardinalityBudget<TableName> budget = newCardinalityBudget(
+            CardinalityBudget.Aggregation.COUNTER,
+            CardinalityBudget.Aggregation.MAX,
+            CardinalityBudget.Aggregation.MAX,
+            CardinalityBudget.Aggregation.MAX,
+            CardinalityBudget.Aggregation.SUM);
+    private TableSeries other;
     
     /**
      * Create collector instance.
@@ -76,16 +83,19 @@ public abstract class AbstractLatencyCollector extends AbstractTableCollector {
                     .withName(BASENAME + "_bucket")
                     .withHelp("exporting percentile buckets in milliseconds for " + TABLE)
                     .withType(MetricType.SUMMARY)
+                    .withSummaryCount(metricCount)
                     .withCommonLabels(context.commonLabels)
                     .build();
             Repository.getInstance().add(metricBuckets);
             metricRate = new Metric.Builder()
                     .withName(BASENAME + "_rate")
                     .withHelp("exporting request rate per second for " + TABLE)
-                    .withType(MetricType.SUMMARY)
+                    .withType(MetricType.GAUGE)
                     .withCommonLabels(context.commonLabels)
                     .build();
             Repository.getInstance().add(metricRate);
+            if (budget.isLimited())
+                other = newSeries(new TableName(CardinalityBudget.OTHER, CardinalityBudget.OTHER), false);
         } catch (MetricException ex) {
             throw new CollectorException(String.format("{}: failed to initialize collector metrics.", this.getClass().getSimpleName()), ex);
         }
@@ -101,58 +111,103 @@ public abstract class AbstractLatencyCollector extends AbstractTableCollector {
         Repository.getInstance().remove(metricRate);
     }
 
+    @Override
+    protected CompletionStage<Void> collectAll() {
+        return forEachRow(scanLatencies(), latency -> {
+            AbstractAsyncTask<?> task = tasks.get(new TableName(latency.keyspace_name(), latency.table_name()));
+            if (task != null)
+                ((Collector) task).collect(latency);
+        });
+    }
+
+    /**
+     * Get the latency entities of all tables.
+     * @return stage completing with the first page of metrics entities
+     */
+    protected abstract CompletionStage<? extends MappedAsyncPagingIterable<? extends Latency>> scanLatencies();
+
+    /**
+     * Create the latency series of a table.
+     * @param quantiles false for __other__, the max of the quantiles of the
+     * folded tables isn't a quantile of the aggregate
+     */
+    private TableSeries newSeries(TableName table, boolean quantiles) throws MetricException {
+        List<Label> tabLabel = LabelListBuilder.valueOf(table);
+        TableSeries series = new TableSeries()
+                .with(0, metricCount, tabLabel)
+                .with(1, metricMax, tabLabel)
+                .with(4, metricRate, tabLabel);
+        if (!quantiles)
+            return series;
+        return series
+                .with(2, metricBuckets, new LabelListBuilder()
+                        .addLabels(tabLabel)
+                        .addLabel("quantile", "0.5")
+                        .build())
+                .with(3, metricBuckets, new LabelListBuilder()
+                        .addLabels(tabLabel)
+                        .addLabel("quantile", "0.99")
+                        .build());
+    }
+
     /**
      * A generic latency collector task.
      */
-    protected abstract class Collector extends Thread {
+    protected abstract class Collector extends AbstractAsyncTask<Latency> {
         /**
          * Table this collector task is collecting metrics for.
          */
         protected final TableName table;
-        private final Map<String,List<Label>> metricLabels;
+        private final AdaptiveInterval adaptiveInterval = newAdaptiveInterval();
+        private final TableSeries series;
+        private long lastCount = -1;
         
         Collector(MetricsIdentifier id) throws MetricException {
+            super(id);
             table = (TableName) id;
-            List<Label> tabLabel = LabelListBuilder.valueOf(table);
-            Map<String,List<Label>> labelmap = new HashMap<>();
-            labelmap.put("count", tabLabel);
-            labelmap.put("max_ms", tabLabel);
-            labelmap.put("p50th_ms", new LabelListBuilder()
-                    .addLabels(tabLabel)
-                    .addLabel("quantile", "0.5")
-                    .build()
-            );
-            labelmap.put("p99th_ms", new LabelListBuilder()
-                    .addLabels(tabLabel)
-                    .addLabel("quantile", "0.99")
-                    .build()
-            );
-            labelmap.put("per_second", tabLabel);
-            metricLabels = Map.copyOf(labelmap);
-            
-            metricCount.addInstance(metricLabels.get("count"));
-            metricMax.addInstance(metricLabels.get("max_ms"));
-            metricBuckets.addInstance(metricLabels.get("p50th_ms"));
-            metricBuckets.addInstance(metricLabels.get("p99th_ms"));
-            metricRate.addInstance(metricLabels.get("per_second"));
+            series = newSeries(table, true);
+        }
+
+        @Override
+        protected CompletionStage<? extends Latency> query() {
+            return getLatency();
         }
 
         @Override
         public void run() {
-            Latency latency = getLatency();
+            if (adaptiveInterval.skip()) {
+                LOG.trace("Skipping idle table {}", table);
+                return;
+            }
+            super.run();
+        }
+
+        @Override
+        protected void release() {
+            series.release();
+        }
+
+        @Override
+        protected void collect(Latency latency) {
             LOG.debug("Metrics acquired: {}", latency);
-            metricCount.setValue(metricLabels.get("count"), latency.count());
-            metricMax.setValue(metricLabels.get("max_ms"), latency.max_ms());
-            metricBuckets.setValue(metricLabels.get("p50th_ms"), latency.p50th_ms());
-            metricBuckets.setValue(metricLabels.get("p99th_ms"), latency.p99th_ms());
-            metricRate.setValue(metricLabels.get("per_second"), latency.per_second());
+            adaptiveInterval.observe(latency.count());
+            long delta = lastCount < 0 ? 0 : Math.max(0, latency.count() - lastCount);
+            lastCount = latency.count();
+            double[] values = {latency.count(), latency.max_ms(), latency.p50th_ms(), latency.p99th_ms(), latency.per_second()};
+            if (budget.observe(table, delta, values)) {
+                series.publish(values);
+                return;
+            }
+            series.fold();
+            if (other != null)
+                other.publish(budget.getAggregate());
         }
 
         /**
          * Get the latency entity for this task.
-         * @return metrics entity object
+         * @return stage completing with the metrics entity object
          */
-        protected abstract Latency getLatency();
+        protected abstract CompletionStage<? extends Latency> getLatency();
     }
 
 }
@@ -15,26 +15,50 @@
  */
 package io.github.rtib.cmc.collectors;
 
+import com.datastax.oss.driver.api.core.MappedAsyncPagingIterable;
+import com.typesafe.config.Config;
 import com.typesafe.config.ConfigBeanFactory;
+import io.github.rtib.cmc.metrics.Label;
+import io.github.rtib.cmc.metrics.Metric;
+import io.github.rtib.cmc.metrics.MetricException;
+import io.github.rtib.cmc.metrics.SampleBatch;
+import io.github.rtib.cmc.metrics.SeriesHandle;
 import io.github.rtib.cmc.model.MetricsIdentifier;
 import io.github.rtib.cmc.model.system_schema.TableName;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * Abstract class collecting metrics on a per table base.
+ * Abstract class collecting metrics on a per table base. Collector tasks are
+ * engaged and ceased on the changes of the shared table catalog.
  * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
  */
-public abstract class AbstractTableCollector extends AbstractCollector {
-    // private static final Logger LOG = LoggerFactory.getLogger(AbstractTableCollector.class);
+public abstract class AbstractTableCollector extends AbstractCollector implements TableCatalog.Listener {
+    private static final Logger LOG = LoggerFactory.getLogger(AbstractTableCollector.class);
     
     /**
      * Configuration bean generic to all subordinate collectors.
      */
     protected final TableCollectorConfig config = ConfigBeanFactory.create(context.getConfigFor(this.getClass()), TableCollectorConfig.class);
     
+    /**
+     * Scheduled task scanning the whole source table, if collecting in bulk.
+     */
+    protected HashedWheelScheduler.Timeout bulkTask;
+    private final List<CardinalityBudget<TableName>> budgets = new CopyOnWriteArrayList<>();
+    
     private static final Predicate<TableName> isUserKeyspace = new Predicate<>() {
         private final List<Pattern> USUAL_SUSPECTS = List.of(
             Pattern.compile("^system$"),
@@ -59,22 +83,244 @@ public abstract class AbstractTableCollector extends AbstractCollector {
     }
 
     @Override
-    protected List<? extends MetricsIdentifier> getInstances() {
-        List<TableName> fulllist = context.systemSchemaDao.listAllTables().all();
+    public void activate() throws CollectorException {
+        super.activate();
+        if (!isBulkCollection() || context.scrapeTrigger != null)
+            return;
+        
+        Duration interval = config.getMetricsCollectionInterval();
+        LOG.info("Starting {} bulk collection task with interval {}", this.getClass().getSimpleName(), interval);
+        bulkTask = context.collectionScheduler.schedule(
+                this,
+                TABLE,
+                () -> bulkCollect(),
+                interval,
+                () -> bulkWeight());
+    }
+
+    @Override
+    public void deactivate() {
+        if (bulkTask != null) {
+            bulkTask.cancel();
+            context.phasePlanner.release(this, TABLE);
+            bulkTask = null;
+        }
+        super.deactivate();
+    }
+
+    @Override
+    protected void startUpdates() {
+        LOG.info("Subscribing {} to the table catalog", this.getClass().getSimpleName());
+        context.tableCatalog.subscribe(this);
+        if (budgets.stream().noneMatch(CardinalityBudget::isLimited))
+            return;
+        Duration updateInterval = config.getUpdateInterval();
+        LOG.info("Starting {} cardinality budget rebalancing with interval {}", this.getClass().getSimpleName(), updateInterval);
+        updateTask = context.queryExecutor.scheduleAtFixedRate(
+                new Thread(() -> rebalance()),
+                context.phasePlanner.offset(this, "rebalance", updateInterval).toSeconds(),
+                updateInterval.toSeconds(), TimeUnit.SECONDS);
+    }
+
+    @Override
+    protected void stopUpdates() {
+        context.tableCatalog.unsubscribe(this);
+        super.stopUpdates();
+    }
+
+    /**
+     * Create a cardinality budget of the tables having individual series,
+     * limited to the configured max tables. The budget is rebalanced on the
+     * update interval and forgets tables removed.
+     * @param aggregations aggregation of each value folded into __other__
+     * @return the budget
+     */
+    protected CardinalityBudget<TableName> newCardinalityBudget(CardinalityBudget.Aggregation... aggregations) {
+        CardinalityBudget<TableName> budget = new CardinalityBudget<>(this.getClass().getSimpleName(), config.getMaxTables(), aggregations);
+        budgets.add(budget);
+        return budget;
+    }
+
+    private void rebalance() {
+        for (CardinalityBudget<TableName> budget : budgets) {
+            budget.rebalance();
+            budget.export();
+            LOG.debug("{} cardinality budget rebalanced, {} tables folded.", this.getClass().getSimpleName(), budget.getFolded());
+        }
+    }
+
+    @Override
+    public void tableAdded(TableName table) {
+        if (tasks.containsKey(table) || !(config.isIncludeSystemTables() || isUserKeyspace.test(table)))
+            return;
+        try {
+            addCollector(table, createCollectorTask(table), config.getMetricsCollectionInterval());
+            reweigh();
+        } catch (MetricException ex) {
+            LOG.error("Couldn't create {} task for {}.", this.getClass().getSimpleName(), table, ex);
+        }
+    }
+
+    @Override
+    public void tableRemoved(TableName table) {
+        removeCollector(table);
+        budgets.forEach(budget -> budget.remove(table));
+        reweigh();
+    }
+
+    /**
+     * Get the planned load of a bulk collection, a row per table.
+     */
+    private int bulkWeight() {
+        return Math.max(1, tasks.size());
+    }
+
+    /**
+     * Account the changed number of tables to the planned bulk collection.
+     */
+    private void reweigh() {
+        if (bulkTask != null)
+            context.phasePlanner.reweigh(this, TABLE, bulkWeight());
+    }
+
+    @Override
+    public CompletionStage<Void> collect() {
+        if (isBulkCollection())
+            return bulkCollect();
+        return super.collect();
+    }
+
+    @Override
+    protected boolean isBulkCollection() {
+        return config.isBulkCollection();
+    }
+
+    private CompletionStage<Void> bulkCollect() {
+        return context.loadGovernor
+                // the duration of a scan of many pages tells nothing about overload
+                .submit(LoadGovernor.Priority.TABLE, false, () -> collectAll())
+                .exceptionally(ex -> {
+                    LOG.atDebug().setCause(ex).log("Bulk collection of {} not completed.", this.getClass().getSimpleName());
+                    return null;
+                });
+    }
+
+    /**
+     * Query all rows of the source table at once and hand each row over to
+     * the collector task of the table it belongs to. Rows of tables without
+     * an engaged task are skipped.
+     * @return stage completing when all pages have been handed over
+     */
+    protected abstract CompletionStage<Void> collectAll();
+
+    /**
+     * Hand over each row of an asynchronous scan to a consumer, fetching the
+     * next page once the current one is consumed. No thread is held while
+     * waiting for a page.
+     * @param <T> type of the rows
+     * @param scan stage completing with the first page
+     * @param consumer consumer of the rows
+     * @return stage completing when all pages are consumed
+     */
+    protected static <T> CompletionStage<Void> forEachRow(CompletionStage<? extends MappedAsyncPagingIterable<? extends T>> scan, Consumer<? super T> consumer) {
+        return scan.thenCompose(page -> {
+            for (T row : page.currentPage())
+                consumer.accept(row);
+            if (!page.hasMorePages())
+                return CompletableFuture.completedFuture(null);
+            return forEachRow(page.fetchNextPage(), consumer);
+        });
+    }
+
+    /**
+     * Create the activity adaptive interval of a collector task. Idle tables
+     * are backed off up to the configured max interval, if enabled.
+     * @return adaptive interval of the task
+     */
+    AdaptiveInterval newAdaptiveInterval() {
+        Config adaptive = context.getConfigFor("adaptive-interval");
+        if (!adaptive.getBoolean("enabled"))
+            return new AdaptiveInterval(1);
+        long base = Math.max(1, config.getMetricsCollectionInterval().toSeconds());
+        return new AdaptiveInterval((int) (adaptive.getDuration("max-interval").toSeconds() / base));
+    }
+
+    @Override
+    protected Iterable<? extends MetricsIdentifier> getInstances() {
+        Set<TableName> tables = context.tableCatalog.getTables();
         if (config.isIncludeSystemTables())
-            return fulllist;
+            return tables;
         
-        return fulllist
+        return tables
                 .stream()
                 .filter(AbstractTableCollector.isUserKeyspace)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * The series of a table, or of the tables folded into __other__, made of
+     * pairs of a metric and the labels of its instance. Each pair exports the
+     * value at its index of the values published. The instances are added to
+     * the metrics on the first values published, removed when the table is
+     * folded and added again on the next values published. Once released,
+     * values published later, e.g. by a query in flight, are ignored.
+     */
+    static final class TableSeries {
+        private final List<Metric> metrics = new ArrayList<>();
+        private final List<List<Label>> labels = new ArrayList<>();
+        private final List<Integer> indexes = new ArrayList<>();
+        private SeriesHandle[] handles;
+        private boolean released;
+
+        /**
+         * Add a pair exporting a value to the series.
+         * @param index index of the value within the values published
+         * @param metric metric of the instance
+         * @param instanceLabels labels of the instance
+         * @return this series
+         */
+        TableSeries with(int index, Metric metric, List<Label> instanceLabels) {
+            metrics.add(metric);
+            labels.add(instanceLabels);
+            indexes.add(index);
+            return this;
+        }
+
+        synchronized void publish(double... values) {
+            if (released)
+                return;
+            if (handles == null) {
+                handles = new SeriesHandle[metrics.size()];
+                for (int i = 0; i < handles.length; i++)
+                    handles[i] = metrics.get(i).addInstance(labels.get(i));
+            }
+            SampleBatch batch = new SampleBatch(handles.length);
+            for (int i = 0; i < handles.length; i++)
+                batch.add(handles[i], values[indexes.get(i)]);
+            batch.publish();
+        }
+
+        synchronized void fold() {
+            if (handles == null)
+                return;
+            for (int i = 0; i < handles.length; i++)
+                metrics.get(i).removeInstance(handles[i]);
+            handles = null;
+        }
+
+        synchronized void release() {
+            released = true;
+            fold();
+        }
+    }
+
     /**
      * Configuration bean.
      */
     protected static class TableCollectorConfig extends CollectorConfig {
         private boolean includeSystemTables;
+        private boolean bulkCollection;
+        private int maxTables;
 
         /**
          * Create the configuration bean instance.
@@ -98,5 +344,37 @@ public abstract class AbstractTableCollector extends AbstractCollector {
         public void setIncludeSystemTables(boolean includeSystemTables) {
             this.includeSystemTables = includeSystemTables;
         }
+
+        /**
+         * Get whether metrics of all tables are acquired by a single query.
+         * @return true if collecting in bulk
+         */
+        public boolean isBulkCollection() {
+            return bulkCollection;
+        }
+
+        /**
+         * Set whether metrics of all tables are acquired by a single query.
+         * @param bulkCollection true to collect in bulk
+         */
+        public void setBulkCollection(boolean bulkCollection) {
+            this.bulkCollection = bulkCollection;
+        }
+
+        /**
+         * Get the max tables having individual series.
+         * @return max tables, zero for unlimited
+         */
+        public int getMaxTables() {
+            return maxTables;
+        }
+
+        /**
+         * Set the max tables having individual series.
+         * @param maxTables max tables, zero for unlimited
+         */
+        public void setMaxTables(int maxTables) {
+            this.maxTables = maxTables;
+        }
     }
 }
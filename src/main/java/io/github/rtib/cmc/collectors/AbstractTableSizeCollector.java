@@ -15,7 +15,7 @@
  */
 package io.github.rtib.cmc.collectors;
 
-import io.github.rtib.cmc.metrics.Label;
+import com.datastax.oss.driver.api.core.MappedAsyncPagingIterable;
 import io.github.rtib.cmc.metrics.LabelListBuilder;
 import io.github.rtib.cmc.metrics.Metric;
 import io.github.rtib.cmc.metrics.MetricException;
@@ -24,7 +24,7 @@ import io.github.rtib.cmc.metrics.Repository;
 import io.github.rtib.cmc.model.MetricsIdentifier;
 import io.github.rtib.cmc.model.system_schema.TableName;
 import io.github.rtib.cmc.model.system_views.TableSize;
-import java.util.List;
+import java.util.concurrent.CompletionStage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,6 +35,8 @@ import org.slf4j.LoggerFactory;
 public abstract class AbstractTableSizeCollector extends AbstractTableCollector {
     private static final Logger LOG = LoggerFactory.getLogger(AbstractTableSizeCollector.class);
     private Metric metric;
+    private final CardinalityBudget<TableName> budget = newCardinalityBudget(aggregation());
+    private TableSeries other;
     
     /**
      * Create collector instance.
@@ -58,6 +60,8 @@ public abstract class AbstractTableSizeCollector extends AbstractTableCollector
                     .withCommonLabels(context.commonLabels)
                     .build();
             Repository.getInstance().add(metric);
+            if (budget.isLimited())
+                other = new TableSeries().with(0, metric, LabelListBuilder.valueOf(new TableName(CardinalityBudget.OTHER, CardinalityBudget.OTHER)));
         } catch (MetricException ex) {
             throw new CollectorException("Failed to initialize collector metrics.", ex);
         }
@@ -70,36 +74,73 @@ public abstract class AbstractTableSizeCollector extends AbstractTableCollector
         Repository.getInstance().remove(metric);
     }
 
+    @Override
+    protected CompletionStage<Void> collectAll() {
+        return forEachRow(scanTableSizes(), size -> {
+            AbstractAsyncTask<?> task = tasks.get(new TableName(size.keyspace_name(), size.table_name()));
+            if (task != null)
+                ((Collector) task).collect(size);
+        });
+    }
+
+    /**
+     * Get the aggregation of the sizes of tables folded into __other__.
+     * @return aggregation of the sizes, sum by default
+     */
+    protected CardinalityBudget.Aggregation aggregation() {
+        return CardinalityBudget.Aggregation.SUM;
+    }
+
+    /**
+     * Get the table size entities of all tables.
+     * @return stage completing with the first page of metrics entities
+     */
+    protected abstract CompletionStage<? extends MappedAsyncPagingIterable<? extends TableSize>> scanTableSizes();
+
     /**
      * Collector task to collect metrics of a single table.
      */
-    protected abstract class Collector extends Thread {
+    protected abstract class Collector extends AbstractAsyncTask<TableSize> {
 
         /**
          * Table this collector task is collecting metrics for.
          */
         protected final TableName table;
-        private final List<Label> labels;
+        private final TableSeries series;
 
         Collector(MetricsIdentifier id) {
-            super();
+            super(id);
             this.table = (TableName) id;
-            this.labels = LabelListBuilder.valueOf(this.table);
-            metric.addInstance(labels);
+            this.series = new TableSeries().with(0, metric, LabelListBuilder.valueOf(this.table));
+        }
+
+        @Override
+        protected CompletionStage<? extends TableSize> query() {
+            return getTableSize();
+        }
+
+        @Override
+        protected void release() {
+            series.release();
         }
 
         @Override
-        public void run() {
-            TableSize size = getTableSize();
+        protected void collect(TableSize size) {
             LOG.debug("Metrics acquired: {}", size);
-            metric.setValue(labels, size.mebibytes());
+            if (budget.observe(table, size.mebibytes(), size.mebibytes())) {
+                series.publish(size.mebibytes());
+                return;
+            }
+            series.fold();
+            if (other != null)
+                other.publish(budget.getAggregate()[0]);
         }
         
         /**
          * Get the table size metrics.
-         * @return entity instance
+         * @return stage completing with the entity instance
          */
-        protected abstract TableSize getTableSize();
+        protected abstract CompletionStage<? extends TableSize> getTableSize();
     }
     
 }
@@ -15,7 +15,7 @@
  */
 package io.github.rtib.cmc.collectors;
 
-import io.github.rtib.cmc.metrics.Label;
+import com.datastax.oss.driver.api.core.MappedAsyncPagingIterable;
 import io.github.rtib.cmc.metrics.LabelListBuilder;
 import io.github.rtib.cmc.metrics.Metric;
 import io.github.rtib.cmc.metrics.MetricException;
@@ -24,10 +24,7 @@ import io.github.rtib.cmc.metrics.Repository;
 import io.github.rtib.cmc.model.MetricsIdentifier;
 import io.github.rtib.cmc.model.system_schema.TableName;
 import io.github.rtib.cmc.model.system_views.TableSummary;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.CompletionStage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,6 +38,12 @@ public abstract class AbstractTableSummaryCollector extends AbstractTableCollect
     private final String BASENAME = "cassandra_" + TABLE;
     private Metric metricCount;
     private Metric metricGauge;
+    private final CardinalityBudget<TableName> budget = newCardinalityBudget(
+            CardinalityBudget.Aggregation.COUNTER,
+            CardinalityBudget.Aggregation.MAX,
+            CardinalityBudget.Aggregation.MAX,
+            CardinalityBudget.Aggregation.MAX);
+    private TableSeries other;
 
     /**
      * Create collector instance.
@@ -71,6 +74,8 @@ public abstract class AbstractTableSummaryCollector extends AbstractTableCollect
                     .withCommonLabels(context.commonLabels)
                     .build();
             Repository.getInstance().add(metricCount);
+            if (budget.isLimited())
+                other = newSeries(new TableName(CardinalityBudget.OTHER, CardinalityBudget.OTHER), false);
         } catch (MetricException ex) {
             throw new CollectorException(String.format("{}: failed to initialize collector metrics.", this.getClass().getSimpleName()), ex);
         }
@@ -83,50 +88,94 @@ public abstract class AbstractTableSummaryCollector extends AbstractTableCollect
         Repository.getInstance().remove(metricGauge);
         Repository.getInstance().remove(metricCount);
     }
+
+    @Override
+    protected CompletionStage<Void> collectAll() {
+        return forEachRow(scanSummaries(), summary -> {
+            AbstractAsyncTask<?> task = tasks.get(new TableName(summary.keyspace_name(), summary.table_name()));
+            if (task != null)
+                ((Collector) task).collect(summary);
+        });
+    }
+
+    /**
+     * Get the summary entities of all tables.
+     * @return stage completing with the first page of metrics entities
+     */
+    protected abstract CompletionStage<? extends MappedAsyncPagingIterable<? extends TableSummary>> scanSummaries();
     
+    /**
+     * Create the summary series of a table.
+     * @param quantiles whether p50th and p99th are exported, not for __other__
+     */
+    private TableSeries newSeries(TableName table, boolean quantiles) {
+        TableSeries series = new TableSeries()
+                .with(0, metricCount, LabelListBuilder.valueOf(table, "reads"))
+                .with(1, metricGauge, LabelListBuilder.valueOf(table, "max"));
+        if (!quantiles)
+            return series;
+        return series
+                .with(2, metricGauge, LabelListBuilder.valueOf(table, "p50th"))
+                .with(3, metricGauge, LabelListBuilder.valueOf(table, "p99th"));
+    }
+
     /**
      * Collector tasks for collecting the metrics of a single table.
      */
-    protected abstract class Collector extends Thread {
+    protected abstract class Collector extends AbstractAsyncTask<TableSummary> {
         /**
          * Table this collector task is collecting metrics for.
          */
         protected final TableName table;
-        
-        private final Map<String,List<Label>> metricLabels = new HashMap<>();
-        private final String counterName = "reads";
-        private final Set<String> gaugeNames = Set.of(
-                "max",
-                "p50th",
-                "p99th"
-        );
+        private final AdaptiveInterval adaptiveInterval = newAdaptiveInterval();
+        private final TableSeries series;
+        private long lastCount = -1;
 
         Collector(MetricsIdentifier id) {
+            super(id);
             this.table = (TableName) id;
-            for (String gaugeName : gaugeNames) {
-                List<Label> labels = LabelListBuilder.valueOf(table, gaugeName);
-                metricLabels.put(gaugeName, labels);
-                metricGauge.addInstance(labels);
-            }
-            List<Label> labels = LabelListBuilder.valueOf(table, counterName);
-            metricLabels.put(counterName, labels);
-            metricCount.addInstance(labels);
+            this.series = newSeries(table, true);
+        }
+
+        @Override
+        protected CompletionStage<? extends TableSummary> query() {
+            return getSummary();
         }
 
         @Override
         public void run() {
-            TableSummary summary = getSummary();
+            if (adaptiveInterval.skip()) {
+                LOG.trace("Skipping idle table {}", table);
+                return;
+            }
+            super.run();
+        }
+
+        @Override
+        protected void release() {
+            series.release();
+        }
+
+        @Override
+        protected void collect(TableSummary summary) {
             LOG.debug("Metrics acquired: {}", summary);
-            metricCount.setValue(metricLabels.get("reads"), summary.count());
-            metricGauge.setValue(metricLabels.get("max"), summary.max());
-            metricGauge.setValue(metricLabels.get("p50th"), summary.p50th());
-            metricGauge.setValue(metricLabels.get("p99th"), summary.p99th());
+            adaptiveInterval.observe(summary.count());
+            long delta = lastCount < 0 ? 0 : Math.max(0, summary.count() - lastCount);
+            lastCount = summary.count();
+            double[] values = {summary.count(), summary.max(), summary.p50th(), summary.p99th()};
+            if (budget.observe(table, delta, values)) {
+                series.publish(values);
+                return;
+            }
+            series.fold();
+            if (other != null)
+                other.publish(budget.getAggregate());
         }
 
         /**
          * Get the summary entity for this task.
-         * @return metrics entity object
+         * @return stage completing with the metrics entity object
          */
-        protected abstract TableSummary getSummary();
+        protected abstract CompletionStage<? extends TableSummary> getSummary();
     }
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.collectors;
+
+/**
+ * Activity adaptive collection interval of a single collector task. The task
+ * is scheduled at its base interval, but skips collection cycles while the
+ * observed activity counter doesn't change. Each idle collection doubles the
+ * effective interval up to a cap, any change of the counter snaps it back to
+ * the base interval.
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+final class AdaptiveInterval {
+
+    private final int maxFactor;
+    private long lastCount = -1;
+    private int factor = 1;
+    private int skipped = 0;
+
+    /**
+     * Create the instance.
+     * @param maxFactor cap of the effective interval as a multiple of the base
+     * interval, 1 disables the back off
+     */
+    AdaptiveInterval(int maxFactor) {
+        this.maxFactor = Math.max(1, maxFactor);
+    }
+
+    /**
+     * Decide whether the current collection cycle is to be skipped.
+     * @return true if the cycle is to be skipped
+     */
+    synchronized boolean skip() {
+        if (skipped + 1 < factor) {
+            skipped++;
+            return true;
+        }
+        skipped = 0;
+        return false;
+    }
+
+    /**
+     * Record the activity counter acquired by a collection.
+     * @param count current value of the activity counter
+     */
+    synchronized void observe(long count) {
+        if (count == lastCount)
+            factor = Math.min(factor * 2, maxFactor);
+        else
+            factor = 1;
+        lastCount = count;
+    }
+
+    /**
+     * Get the current effective interval.
+     * @return effective interval as a multiple of the base interval
+     */
+    synchronized int getFactor() {
+        return factor;
+    }
+}
@@ -16,20 +16,19 @@
 package io.github.rtib.cmc.collectors;
 
 import com.google.auto.service.AutoService;
-import io.github.rtib.cmc.metrics.Label;
 import io.github.rtib.cmc.metrics.LabelListBuilder;
 import io.github.rtib.cmc.metrics.Metric;
 import io.github.rtib.cmc.metrics.MetricException;
 import io.github.rtib.cmc.metrics.MetricType;
 import io.github.rtib.cmc.metrics.Repository;
+import io.github.rtib.cmc.metrics.SampleBatch;
+import io.github.rtib.cmc.metrics.SeriesHandle;
 import io.github.rtib.cmc.model.DaoSystemViewsV41;
 import io.github.rtib.cmc.model.MapperSystemViews;
 import io.github.rtib.cmc.model.MetricsIdentifier;
 import io.github.rtib.cmc.model.system_views.BatchMetrics;
 import io.github.rtib.cmc.model.system_views.BatchMetricsName;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletionStage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -89,12 +88,12 @@ public class BatchMetricsCollector extends AbstractCollector {
     }
 
     @Override
-    protected List<? extends MetricsIdentifier> getInstances() {
-        return dao.listBatchStatements().all();
+    protected Iterable<? extends MetricsIdentifier> getInstances() {
+        return dao.listBatchStatements();
     }
 
     @Override
-    protected Thread createCollectorTask(MetricsIdentifier id) throws MetricException {
+    protected AbstractAsyncTask<?> createCollectorTask(MetricsIdentifier id) throws MetricException {
         return new Collector(id);
     }
 
@@ -103,48 +102,60 @@ public class BatchMetricsCollector extends AbstractCollector {
         dao = MapperSystemViews.builder(context.cqlSession).build().systemViewsDaoV41();
     }
     
-    private class Collector extends Thread {
+    private class Collector extends AbstractAsyncTask<BatchMetrics> {
         private final BatchMetricsName batchStatement;
-        private final Map<String,List<Label>> metricLabels;
+        private final SeriesHandle max;
+        private final SeriesHandle p50th;
+        private final SeriesHandle p999th;
+        private final SeriesHandle p99th;
         
         public Collector(MetricsIdentifier id) throws MetricException {
+            super(id);
             batchStatement = (BatchMetricsName) id;
-            Map<String,List<Label>> labelmap = new HashMap<>();
-            labelmap.put("max", new LabelListBuilder()
+            max = metricGauge.addInstance(new LabelListBuilder()
                     .addLabel("statement", batchStatement.name())
                     .addLabel("metric", "max")
                     .build()
             );
-            labelmap.put("p50th", new LabelListBuilder()
+            p50th = metricSummary.addInstance(new LabelListBuilder()
                     .addLabel("statement", batchStatement.name())
                     .addLabel("quantile", "0.5")
                     .build()
             );
-            labelmap.put("p999th", new LabelListBuilder()
+            p999th = metricSummary.addInstance(new LabelListBuilder()
                     .addLabel("statement", batchStatement.name())
                     .addLabel("quantile", "0.999")
                     .build()
             );
-            labelmap.put("p99th", new LabelListBuilder()
+            p99th = metricSummary.addInstance(new LabelListBuilder()
                     .addLabel("statement", batchStatement.name())
                     .addLabel("quantile", "0.99")
                     .build()
             );
-            metricLabels = Map.copyOf(labelmap);
-            metricGauge.addInstance(labelmap.get("max"));
-            metricSummary.addInstance(labelmap.get("p50th"));
-            metricSummary.addInstance(labelmap.get("p999th"));
-            metricSummary.addInstance(labelmap.get("p99th"));
         }
 
         @Override
-        public void run() {
-            BatchMetrics metrics = dao.BatchMetrics(batchStatement.name());
+        protected void release() {
+            metricGauge.removeInstance(max);
+            metricSummary.removeInstance(p50th);
+            metricSummary.removeInstance(p999th);
+            metricSummary.removeInstance(p99th);
+        }
+
+        @Override
+        protected CompletionStage<? extends BatchMetrics> query() {
+            return dao.BatchMetricsAsync(batchStatement.name());
+        }
+
+        @Override
+        protected void collect(BatchMetrics metrics) {
             LOG.debug("Metrics acquired: {}", metrics);
-            metricGauge.setValue(metricLabels.get("max"), metrics.max());
-            metricSummary.setValue(metricLabels.get("p50th"), metrics.p50th());
-            metricSummary.setValue(metricLabels.get("p999th"), metrics.p999th());
-            metricSummary.setValue(metricLabels.get("p99th"), metrics.p99th());
+            new SampleBatch(4)
+                    .add(max, metrics.max())
+                    .add(p50th, metrics.p50th())
+                    .add(p999th, metrics.p999th())
+                    .add(p99th, metrics.p99th())
+                    .publish();
         }
     }
 }
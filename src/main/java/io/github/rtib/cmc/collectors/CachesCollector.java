@@ -16,20 +16,18 @@
 package io.github.rtib.cmc.collectors;
 
 import com.google.auto.service.AutoService;
-import io.github.rtib.cmc.metrics.Label;
 import io.github.rtib.cmc.metrics.LabelListBuilder;
 import io.github.rtib.cmc.metrics.Metric;
 import io.github.rtib.cmc.metrics.MetricException;
 import io.github.rtib.cmc.metrics.MetricType;
 import io.github.rtib.cmc.metrics.Repository;
+import io.github.rtib.cmc.metrics.SampleBatch;
+import io.github.rtib.cmc.metrics.SeriesHandle;
 import io.github.rtib.cmc.model.MapperSystemViews;
 import io.github.rtib.cmc.model.MetricsIdentifier;
 import io.github.rtib.cmc.model.system_views.CacheName;
 import io.github.rtib.cmc.model.system_views.Caches;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.CompletionStage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import io.github.rtib.cmc.model.DaoSystemViewsV40;
@@ -91,13 +89,13 @@ public class CachesCollector extends AbstractCollector {
     }
     
     @Override
-    protected Thread createCollectorTask(MetricsIdentifier id) throws MetricException {
+    protected AbstractAsyncTask<?> createCollectorTask(MetricsIdentifier id) throws MetricException {
         return new Collector(id);
     }
 
     @Override
-    protected List<? extends MetricsIdentifier> getInstances() {
-        return dao.listCaches().all();
+    protected Iterable<? extends MetricsIdentifier> getInstances() {
+        return dao.listCaches();
     }
 
     @Override
@@ -105,48 +103,60 @@ public class CachesCollector extends AbstractCollector {
         dao = MapperSystemViews.builder(context.cqlSession).build().systemViewsDaoV40();
     }
     
-    private class Collector extends Thread {
+    private class Collector extends AbstractAsyncTask<Caches> {
         private final CacheName cacheName;
-        private final Set<String> counterNames = Set.of(
-                "entry_count",
-                "hit_count",
-                "request_count"
-        );
-        private final Set<String> gaugeNames = Set.of(
-                "capacity_bytes",
-                "hit_ratio",
-                "recent_hit_rate_per_second",
-                "recent_request_rate_per_second",
-                "size_bytes"
-        );
-        private final Map<String,List<Label>> metricLabels = new HashMap<>();
+        private final SeriesHandle capacityBytes;
+        private final SeriesHandle entryCount;
+        private final SeriesHandle hitCount;
+        private final SeriesHandle hitRatio;
+        private final SeriesHandle recentHitRate;
+        private final SeriesHandle recentRequestRate;
+        private final SeriesHandle requestCount;
+        private final SeriesHandle sizeBytes;
         
         public Collector(MetricsIdentifier id) {
+            super(id);
             cacheName = (CacheName) id;
-            for (String gaugeName : gaugeNames) {
-                List<Label> labels = LabelListBuilder.valueOf(cacheName, gaugeName);
-                metricLabels.put(gaugeName, labels);
-                metricGauge.addInstance(labels);
-            }
-            for (String counterName : counterNames) {
-                List<Label> labels = LabelListBuilder.valueOf(cacheName, counterName);
-                metricLabels.put(counterName, labels);
-                metricCounter.addInstance(labels);
-            }
+            capacityBytes = metricGauge.addInstance(LabelListBuilder.valueOf(cacheName, "capacity_bytes"));
+            hitRatio = metricGauge.addInstance(LabelListBuilder.valueOf(cacheName, "hit_ratio"));
+            recentHitRate = metricGauge.addInstance(LabelListBuilder.valueOf(cacheName, "recent_hit_rate_per_second"));
+            recentRequestRate = metricGauge.addInstance(LabelListBuilder.valueOf(cacheName, "recent_request_rate_per_second"));
+            sizeBytes = metricGauge.addInstance(LabelListBuilder.valueOf(cacheName, "size_bytes"));
+            entryCount = metricCounter.addInstance(LabelListBuilder.valueOf(cacheName, "entry_count"));
+            hitCount = metricCounter.addInstance(LabelListBuilder.valueOf(cacheName, "hit_count"));
+            requestCount = metricCounter.addInstance(LabelListBuilder.valueOf(cacheName, "request_count"));
         }
 
         @Override
-        public void run() {
-            Caches caches = dao.caches(cacheName.name());
+        protected void release() {
+            metricGauge.removeInstance(capacityBytes);
+            metricGauge.removeInstance(hitRatio);
+            metricGauge.removeInstance(recentHitRate);
+            metricGauge.removeInstance(recentRequestRate);
+            metricGauge.removeInstance(sizeBytes);
+            metricCounter.removeInstance(entryCount);
+            metricCounter.removeInstance(hitCount);
+            metricCounter.removeInstance(requestCount);
+        }
+
+        @Override
+        protected CompletionStage<? extends Caches> query() {
+            return dao.cachesAsync(cacheName.name());
+        }
+
+        @Override
+        protected void collect(Caches caches) {
             LOG.debug("Metrics acquired: {}", caches);
-            metricGauge.setValue(metricLabels.get("capacity_bytes"), caches.capacity_bytes());
-            metricCounter.setValue(metricLabels.get("entry_count"), caches.entry_count());
-            metricCounter.setValue(metricLabels.get("hit_count"), caches.hit_count());
-            metricGauge.setValue(metricLabels.get("hit_ratio"), caches.hit_ratio());
-            metricGauge.setValue(metricLabels.get("recent_hit_rate_per_second"), caches.recent_hit_rate_per_second());
-            metricGauge.setValue(metricLabels.get("recent_request_rate_per_second"), caches.recent_request_rate_per_second());
-            metricCounter.setValue(metricLabels.get("request_count"), caches.request_count());
-            metricGauge.setValue(metricLabels.get("size_bytes"), caches.size_bytes());
+            new SampleBatch(8)
+                    .add(capacityBytes, caches.capacity_bytes())
+                    .add(entryCount, caches.entry_count())
+                    .add(hitCount, caches.hit_count())
+                    .add(hitRatio, caches.hit_ratio())
+                    .add(recentHitRate, caches.recent_hit_rate_per_second())
+                    .add(recentRequestRate, caches.recent_request_rate_per_second())
+                    .add(requestCount, caches.request_count())
+                    .add(sizeBytes, caches.size_bytes())
+                    .publish();
         }
     }
 }
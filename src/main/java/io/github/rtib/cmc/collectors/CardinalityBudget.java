@@ -0,0 +1,279 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.collectors;
+
+import io.github.rtib.cmc.metrics.Label;
+import io.github.rtib.cmc.metrics.LabelListBuilder;
+import io.github.rtib.cmc.metrics.Metric;
+import io.github.rtib.cmc.metrics.MetricException;
+import io.github.rtib.cmc.metrics.MetricType;
+import io.github.rtib.cmc.metrics.SeriesHandle;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Budget of the instances a collector keeps individual series for. Up to the
+ * limit, instances are retained as observed. Above the limit, only the most
+ * active instances are retained on rebalancing, the values of all others are
+ * folded into a single aggregate, to be exported as an __other__ series.
+ *
+ * @param <K> type of the instance identifier
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public final class CardinalityBudget<K> {
+
+    /**
+     * Label value of the series the folded instances are aggregated into.
+     */
+    public static final String OTHER = "__other__";
+
+    private static volatile Metric rejectionsMetric;
+    private static volatile Metric foldedMetric;
+
+    /**
+     * Aggregation of a value of folded instances.
+     */
+    public enum Aggregation {
+        /**
+         * Sum of the values, e.g. of rates and sizes.
+         */
+        SUM,
+        /**
+         * Sum of the increments of monotonic counters. The first value of an
+         * instance is its baseline, a reset counts the new value. Instances
+         * leaving the aggregate keep their increments, thus it never decreases.
+         */
+        COUNTER,
+        /**
+         * Maximum of the values, e.g. of latencies and sizes.
+         */
+        MAX
+    }
+
+    private final String name;
+    private final int limit;
+    private final Aggregation[] aggregations;
+    private final Map<K,Double> activity = new HashMap<>();
+    private Set<K> retained = new HashSet<>();
+    private final Map<K,double[]> folded = new HashMap<>();
+    private final double[] aggregate;
+    private long rejections = 0;
+    private Metric exportedTo;
+    private SeriesHandle rejectionsHandle;
+    private SeriesHandle foldedHandle;
+
+    /**
+     * Create a budget.
+     * @param name name of the budget owner, exported as collector label
+     * @param limit max instances retained, zero or less for unlimited
+     * @param aggregations aggregation of each value of the instances
+     */
+    public CardinalityBudget(String name, int limit, Aggregation... aggregations) {
+        this.name = name;
+        this.limit = limit;
+        this.aggregations = aggregations.clone();
+        this.aggregate = new double[aggregations.length];
+    }
+
+    /**
+     * Whether the budget is limited.
+     * @return true if instances may be folded
+     */
+    public boolean isLimited() {
+        return limit > 0;
+    }
+
+    /**
+     * Observe the values of an instance. Values of instances not retained are
+     * folded into the aggregate.
+     * @param key identifier of the instance
+     * @param activity activity of the instance the ranking is based on
+     * @param values values of the instance, in order of the aggregations
+     * @return true if the instance is retained, i.e. its own series are to be updated
+     */
+    public synchronized boolean observe(K key, double activity, double... values) {
+        if (!isLimited())
+            return true;
+        this.activity.put(key, activity);
+        if (retained.contains(key))
+            return true;
+        if (retained.size() < limit && !folded.containsKey(key)) {
+            retained.add(key);
+            return true;
+        }
+        double[] previous = folded.put(key, values.clone());
+        if (previous == null)
+            rejections++;
+        for (int i = 0; i < aggregations.length; i++) {
+            switch (aggregations[i]) {
+                case SUM:
+                    aggregate[i] += values[i] - (previous != null ? previous[i] : 0);
+                    break;
+                case COUNTER:
+                    if (previous != null)
+                        aggregate[i] += values[i] >= previous[i] ? values[i] - previous[i] : values[i];
+                    break;
+                default:
+                    aggregate[i] = Math.max(aggregate[i], values[i]);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Forget an instance, e.g. as the table has been dropped.
+     * @param key identifier of the instance
+     */
+    public synchronized void remove(K key) {
+        activity.remove(key);
+        retained.remove(key);
+        unfold(key);
+        recomputeMaxima();
+    }
+
+    /**
+     * Retain the most active instances up to the limit. Instances promoted
+     * are removed from the aggregate, instances demoted are folded on their
+     * next observation. Maxima of the aggregate are recomputed, thus they
+     * cover the period since the last rebalancing.
+     */
+    public synchronized void rebalance() {
+        if (!isLimited())
+            return;
+        PriorityQueue<Map.Entry<K,Double>> top = new PriorityQueue<>(limit + 1, Map.Entry.comparingByValue(Comparator.naturalOrder()));
+        for (Map.Entry<K,Double> entry : activity.entrySet()) {
+            top.add(entry);
+            if (top.size() > limit)
+                top.poll();
+        }
+        Set<K> next = new HashSet<>();
+        for (Map.Entry<K,Double> entry : top)
+            next.add(entry.getKey());
+        for (K key : next)
+            unfold(key);
+        retained = next;
+        recomputeMaxima();
+    }
+
+    /**
+     * Get the aggregate of the folded instances.
+     * @return copy of the aggregated values, in order of the aggregations
+     */
+    public synchronized double[] getAggregate() {
+        return aggregate.clone();
+    }
+
+    /**
+     * Get the number of instances currently folded.
+     * @return number of folded instances
+     */
+    public synchronized int getFolded() {
+        return folded.size();
+    }
+
+    /**
+     * Get the number of times an instance was folded instead of retained.
+     * @return number of rejections
+     */
+    public synchronized long getRejections() {
+        return rejections;
+    }
+
+    /**
+     * Export the number of rejections and folded instances, if the metrics
+     * have been created.
+     */
+    public synchronized void export() {
+        Metric rejectionsTarget = rejectionsMetric;
+        Metric foldedTarget = foldedMetric;
+        if (rejectionsTarget == null || foldedTarget == null)
+            return;
+        if (exportedTo != rejectionsTarget) {
+            try {
+                List<Label> labels = new LabelListBuilder().addLabel("collector", name).build();
+                rejectionsHandle = rejectionsTarget.addInstance(labels);
+                foldedHandle = foldedTarget.addInstance(labels);
+                exportedTo = rejectionsTarget;
+            } catch (MetricException ex) {
+                return;
+            }
+        }
+        rejectionsTarget.setValue(rejectionsHandle, rejections);
+        foldedTarget.setValue(foldedHandle, folded.size());
+    }
+
+    /**
+     * Create the metrics exporting the state of all budgets. The metrics need
+     * to be added to the Repository by the caller, replacing the metrics
+     * created before.
+     * @param commonLabels labels applied to the metrics
+     * @return the metrics
+     * @throws MetricException if the metrics can't be created
+     */
+    public static List<Metric> createMetrics(List<Label> commonLabels) throws MetricException {
+        rejectionsMetric = new Metric.Builder()
+                .withName("cql_metrics_collector_budget_rejections")
+                .withHelp("Instances folded into the __other__ series as exceeding the cardinality budget, by collector.")
+                .withType(MetricType.COUNTER)
+                .withCommonLabels(commonLabels)
+                .build();
+        foldedMetric = new Metric.Builder()
+                .withName("cql_metrics_collector_budget_folded")
+                .withHelp("Instances currently folded into the __other__ series, by collector.")
+                .withType(MetricType.GAUGE)
+                .withCommonLabels(commonLabels)
+                .build();
+        return List.of(rejectionsMetric, foldedMetric);
+    }
+
+    /**
+     * Get the metrics exporting the state of all budgets.
+     * @return the metrics, empty if not created yet
+     */
+    public static List<Metric> getMetrics() {
+        Metric rejectionsTarget = rejectionsMetric;
+        Metric foldedTarget = foldedMetric;
+        if (rejectionsTarget == null || foldedTarget == null)
+            return List.of();
+        return List.of(rejectionsTarget, foldedTarget);
+    }
+
+    private void unfold(K key) {
+        double[] previous = folded.remove(key);
+        if (previous == null)
+            return;
+        for (int i = 0; i < aggregations.length; i++) {
+            if (aggregations[i] == Aggregation.SUM)
+                aggregate[i] -= previous[i];
+        }
+    }
+
+    private void recomputeMaxima() {
+        for (int i = 0; i < aggregations.length; i++) {
+            if (aggregations[i] != Aggregation.MAX)
+                continue;
+            double max = 0;
+            for (double[] values : folded.values())
+                max = Math.max(max, values[i]);
+            aggregate[i] = max;
+        }
+    }
+}
@@ -21,13 +21,13 @@ import io.github.rtib.cmc.metrics.LabelListBuilder;
 import io.github.rtib.cmc.metrics.Metric;
 import io.github.rtib.cmc.metrics.MetricException;
 import io.github.rtib.cmc.metrics.Repository;
+import io.github.rtib.cmc.metrics.SeriesHandle;
 import io.github.rtib.cmc.model.DaoSystemViewsV41;
 import io.github.rtib.cmc.model.MapperSystemViews;
 import io.github.rtib.cmc.model.MetricsIdentifier;
 import io.github.rtib.cmc.model.system_views.CqlMetrics;
 import io.github.rtib.cmc.model.system_views.CqlMetricsName;
-import java.util.Collections;
-import java.util.List;
+import java.util.concurrent.CompletionStage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -83,36 +83,47 @@ public class CqlMetricsCollector extends AbstractCollector {
     }
     
     @Override
-    protected Thread createCollectorTask(MetricsIdentifier id) throws MetricException {
+    protected AbstractAsyncTask<?> createCollectorTask(MetricsIdentifier id) throws MetricException {
         return new Collector(id);
     }
 
     @Override
-    protected List<? extends MetricsIdentifier> getInstances() {
-        return dao.listCqlMetrics().all();
+    protected Iterable<? extends MetricsIdentifier> getInstances() {
+        return dao.listCqlMetrics();
     }
     
-    private class Collector extends Thread {
+    private class Collector extends AbstractAsyncTask<CqlMetrics> {
         private final CqlMetricsName metricsName;
-        private List<Label> metricLabels = Collections.emptyList();
+        private SeriesHandle series;
         
         public Collector(MetricsIdentifier id) {
+            super(id);
             metricsName = (CqlMetricsName) id;
             try {
-                    metricLabels = new LabelListBuilder()
+                    series = metric.addInstance(new LabelListBuilder()
                             .addLabel("metric", metricsName.name())
-                            .build();
-                    metric.addInstance(metricLabels);
+                            .build());
             } catch (MetricException ex) {
                 LOG.atError().log("Failed to create Label.", ex);
             }
         }
 
         @Override
-        public void run() {
-            CqlMetrics CqlMetrics = dao.CqlMetrics(metricsName.name());
+        protected void release() {
+            if (series != null)
+                metric.removeInstance(series);
+        }
+
+        @Override
+        protected CompletionStage<? extends CqlMetrics> query() {
+            return dao.CqlMetricsAsync(metricsName.name());
+        }
+
+        @Override
+        protected void collect(CqlMetrics CqlMetrics) {
             LOG.debug("Metrics acquired: {}", CqlMetrics);
-            metric.setValue(metricLabels, CqlMetrics.value());
+            if (series != null)
+                metric.setValue(series, CqlMetrics.value());
         }
     }
 }
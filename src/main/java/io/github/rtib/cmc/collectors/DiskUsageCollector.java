@@ -15,12 +15,14 @@
  */
 package io.github.rtib.cmc.collectors;
 
+import com.datastax.oss.driver.api.core.MappedAsyncPagingIterable;
 import com.google.auto.service.AutoService;
 import io.github.rtib.cmc.metrics.MetricException;
 import io.github.rtib.cmc.model.MapperSystemViews;
 import io.github.rtib.cmc.model.MetricsIdentifier;
 import io.github.rtib.cmc.model.system_views.TableSize;
 import io.github.rtib.cmc.model.DaoSystemViewsV40;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Collector of disk usage of every table.
@@ -45,12 +47,17 @@ public final class DiskUsageCollector extends AbstractTableSizeCollector {
     }
 
     @Override
-    protected Thread createCollectorTask(MetricsIdentifier id) throws MetricException {
+    protected AbstractAsyncTask<?> createCollectorTask(MetricsIdentifier id) throws MetricException {
         return new Collector(id) {
             @Override
-            protected TableSize getTableSize() {
-                return dao.diskUsageFor(table.keyspace_name(), table.table_name());
+            protected CompletionStage<? extends TableSize> getTableSize() {
+                return dao.diskUsageForAsync(table.keyspace_name(), table.table_name());
             }
         };
     }
+
+    @Override
+    protected CompletionStage<? extends MappedAsyncPagingIterable<? extends TableSize>> scanTableSizes() {
+        return dao.scanDiskUsageAsync();
+    }
 }
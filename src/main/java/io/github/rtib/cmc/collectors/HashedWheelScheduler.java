@@ -0,0 +1,296 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.collectors;
+
+import io.github.rtib.cmc.metrics.Repository;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hashed timing wheel scheduling all periodic collection tasks. A single
+ * ticker advances the wheel, tasks are kept in the slot of their next
+ * deadline. Scheduling and cancelling a task is O(1) and lock-free regardless
+ * of the number of tasks registered. Tasks due on the same tick are
+ * dispatched to the executor in one batch per bucket, usually the collector
+ * owning the tasks.
+ * <p>
+ * Deadlines are anchored to the origin of the wheel, a task of interval i and
+ * offset o is due on the ticks t with t mod i = o, thus the offsets of tasks
+ * registered at different times keep their distance. Tasks registered since
+ * the last tick are planned in order of their bucket and key, independent of
+ * the order of registration. The ticks of an interval form a collection
+ * cycle, once the stages of all tasks dispatched within a cycle completed,
+ * the publish epoch of the repository is advanced.
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public final class HashedWheelScheduler {
+    private static final Logger LOG = LoggerFactory.getLogger(HashedWheelScheduler.class);
+    private static final Comparator<Timeout> PLANNING_ORDER = Comparator
+            .comparing((Timeout timeout) -> timeout.bucket.getClass().getName())
+            .thenComparing(timeout -> String.valueOf(timeout.key));
+
+    private final ScheduledExecutorService executor;
+    private final PhasePlanner planner;
+    private final long tickMillis;
+    private final List<List<Timeout>> wheel;
+    private final int mask;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    // open collection cycles by interval, touched by the ticker only
+    private final Map<Long,Cycle> cycles = new HashMap<>();
+    private long currentTick = 0;
+    private ScheduledFuture<?> ticker;
+
+    /**
+     * Create the scheduler instance.
+     * @param executor executor running the ticker and the dispatched tasks
+     * @param planner planner of the offsets of tasks scheduled by weight
+     * @param tickDuration resolution of the wheel
+     * @param wheelSize number of slots, rounded up to a power of two
+     */
+    public HashedWheelScheduler(ScheduledExecutorService executor, PhasePlanner planner, Duration tickDuration, int wheelSize) {
+        this.executor = executor;
+        this.planner = planner;
+        this.tickMillis = tickDuration.toMillis();
+        int size = Integer.highestOneBit(Math.max(wheelSize, 1) - 1) << 1;
+        this.mask = Math.max(size, 1) - 1;
+        this.wheel = new ArrayList<>(mask + 1);
+        for (int i = 0; i <= mask; i++)
+            wheel.add(new ArrayList<>());
+    }
+
+    /**
+     * Start ticking.
+     * @return this scheduler instance
+     */
+    public HashedWheelScheduler start() {
+        LOG.info("Starting collection scheduler with tick {}ms and {} slots", tickMillis, mask + 1);
+        ticker = executor.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    /**
+     * Stop ticking. Registered tasks won't be dispatched anymore.
+     */
+    public void stop() {
+        if (ticker != null)
+            ticker.cancel(false);
+    }
+
+    /**
+     * Schedule a task for execution at a fixed rate, at a given offset.
+     * @param bucket the owner of the task, tasks of the same bucket being due
+     * on the same tick are dispatched together
+     * @param task the task to run, supplying the stage of its completion
+     * @param offset offset of the executions within the interval
+     * @param interval interval of executions
+     * @return handle of the scheduled task
+     */
+    public Timeout schedule(Object bucket, Supplier<? extends CompletionStage<?>> task, Duration offset, Duration interval) {
+        Timeout timeout = new Timeout(bucket, null, task, null, interval, intervalTicks(interval));
+        timeout.offsetTicks = offset.toMillis() / tickMillis;
+        pending.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Schedule a task for execution at a fixed rate, at the offset planned
+     * for its weight. The plan is to be released by the owner, once the task
+     * is cancelled.
+     * @param bucket the owner of the task, tasks of the same bucket being due
+     * on the same tick are dispatched together
+     * @param key identifier of the task within its bucket
+     * @param task the task to run, supplying the stage of its completion
+     * @param interval interval of executions
+     * @param weight load of a single execution, read when planned
+     * @return handle of the scheduled task
+     */
+    public Timeout schedule(Object bucket, Object key, Supplier<? extends CompletionStage<?>> task, Duration interval, DoubleSupplier weight) {
+        Timeout timeout = new Timeout(bucket, key, task, weight, interval, intervalTicks(interval));
+        pending.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Advance the wheel by one tick and dispatch all tasks due.
+     */
+    void tick() {
+        long now = ++currentTick;
+        completeCycles(now);
+        register(now);
+
+        int index = (int) (now & mask);
+        List<Timeout> slot = wheel.get(index);
+        wheel.set(index, new ArrayList<>());
+        Map<Object,List<Timeout>> batches = new LinkedHashMap<>();
+        for (Timeout timeout : slot) {
+            if (timeout.cancelled)
+                continue;
+            if (timeout.deadline > now) {
+                wheel.get(index).add(timeout);
+                continue;
+            }
+            batches.computeIfAbsent(timeout.bucket, k -> new ArrayList<>()).add(timeout);
+            place(timeout, now + timeout.intervalTicks);
+        }
+
+        for (Map.Entry<Object,List<Timeout>> batch : batches.entrySet()) {
+            CompletableFuture<Void> done = CompletableFuture
+                    .supplyAsync(() -> dispatch(batch.getKey(), batch.getValue()), executor)
+                    .thenCompose(Function.identity());
+            for (Timeout timeout : batch.getValue())
+                cycles.computeIfAbsent(timeout.intervalTicks, interval -> new Cycle(now - now % interval + interval))
+                        .stages.add(done);
+        }
+    }
+
+    /**
+     * Place the tasks registered since the last tick at their first deadline.
+     * Tasks to be planned are planned in a deterministic order.
+     */
+    private void register(long now) {
+        List<Timeout> registered = new ArrayList<>();
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null)
+            registered.add(timeout);
+        registered.sort(PLANNING_ORDER);
+        for (Timeout next : registered) {
+            if (next.cancelled)
+                continue;
+            if (next.weight != null) {
+                next.offsetTicks = planner.plan(next.bucket, next.key, next.interval, next.weight.getAsDouble()).toMillis() / tickMillis;
+                // cancelled while planned, the owner may have missed the plan
+                if (next.cancelled) {
+                    planner.release(next.bucket, next.key);
+                    continue;
+                }
+            }
+            place(next, now + Math.floorMod(next.offsetTicks - now, next.intervalTicks));
+        }
+    }
+
+    /**
+     * Advance the epoch for each collection cycle all tasks of which have
+     * been dispatched, once their stages completed.
+     */
+    private void completeCycles(long now) {
+        Iterator<Cycle> open = cycles.values().iterator();
+        while (open.hasNext()) {
+            Cycle cycle = open.next();
+            if (cycle.end > now)
+                continue;
+            open.remove();
+            CompletableFuture.allOf(cycle.stages.toArray(CompletableFuture<?>[]::new))
+                    .handleAsync((v, ex) -> Repository.getInstance().advanceEpoch(), executor);
+        }
+    }
+
+    private long intervalTicks(Duration interval) {
+        return Math.max(1, interval.toMillis() / tickMillis);
+    }
+
+    private void place(Timeout timeout, long deadline) {
+        if (timeout.cancelled)
+            return;
+        timeout.deadline = deadline;
+        wheel.get((int) (deadline & mask)).add(timeout);
+    }
+
+    private CompletableFuture<Void> dispatch(Object bucket, List<Timeout> timeouts) {
+        LOG.trace("Dispatching {} tasks of {}", timeouts.size(), bucket);
+        List<CompletableFuture<?>> stages = new ArrayList<>(timeouts.size());
+        for (Timeout timeout : timeouts) {
+            try {
+                stages.add(timeout.task.get().toCompletableFuture().exceptionally(ex -> {
+                    LOG.atWarn().setCause(ex).log("Collection task of {} failed.", bucket);
+                    return null;
+                }));
+            } catch (RuntimeException ex) {
+                LOG.atWarn().setCause(ex).log("Collection task of {} failed.", bucket);
+            }
+        }
+        return CompletableFuture.allOf(stages.toArray(CompletableFuture<?>[]::new));
+    }
+
+    /**
+     * Stages of the tasks dispatched within a collection cycle.
+     */
+    private static final class Cycle {
+        private final long end;
+        private final List<CompletableFuture<?>> stages = new ArrayList<>();
+
+        private Cycle(long end) {
+            this.end = end;
+        }
+    }
+
+    /**
+     * Handle of a task scheduled on the wheel.
+     */
+    public static final class Timeout {
+        private final Object bucket;
+        private final Object key;
+        private final Supplier<? extends CompletionStage<?>> task;
+        private final DoubleSupplier weight;
+        private final Duration interval;
+        private final long intervalTicks;
+        private long offsetTicks;
+        private long deadline;
+        private volatile boolean cancelled = false;
+
+        private Timeout(Object bucket, Object key, Supplier<? extends CompletionStage<?>> task, DoubleSupplier weight, Duration interval, long intervalTicks) {
+            this.bucket = bucket;
+            this.key = key;
+            this.task = task;
+            this.weight = weight;
+            this.interval = interval;
+            this.intervalTicks = intervalTicks;
+        }
+
+        /**
+         * Cancel the task. It will be dropped from the wheel on its next due tick.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * Whether the task has been cancelled.
+         * @return true if cancelled
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
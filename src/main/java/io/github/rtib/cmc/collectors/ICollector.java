@@ -15,6 +15,8 @@
  */
 package io.github.rtib.cmc.collectors;
 
+import java.util.concurrent.CompletionStage;
+
 /**
  * Collector interface to be implemented by all metrics collector classes.
  * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
@@ -54,4 +56,11 @@ public interface ICollector {
      */
     void deactivate();
     
+    /**
+     * Collect the metrics of all instances engaged by this collector right
+     * now, independent of the scheduled collection.
+     * @return stage completing once all metric instances are updated
+     */
+    CompletionStage<Void> collect();
+    
 }
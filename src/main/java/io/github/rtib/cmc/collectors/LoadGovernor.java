@@ -0,0 +1,389 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.collectors;
+
+import io.github.rtib.cmc.metrics.Label;
+import io.github.rtib.cmc.metrics.LabelListBuilder;
+import io.github.rtib.cmc.metrics.Metric;
+import io.github.rtib.cmc.metrics.MetricException;
+import io.github.rtib.cmc.metrics.MetricType;
+import io.github.rtib.cmc.metrics.SeriesHandle;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Admission control of the collection queries against Cassandra. Queries are
+ * started at most at the rate of a token bucket and up to a cap of queries in
+ * flight, waiting queries are admitted by priority. The response time of the
+ * admitted queries is smoothed, while it exceeds the shedding threshold, the
+ * node is considered overloaded and low priority queries are rejected except
+ * a single probe per second. Queries like long scans may be excluded from the
+ * response time. Rejected queries are counted per priority and reason, and
+ * are exported as a metric.
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public final class LoadGovernor {
+    private static final Logger LOG = LoggerFactory.getLogger(LoadGovernor.class);
+    private static final double ALPHA = 0.2;
+    private static final long PROBE_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    private static final long WARN_INTERVAL = TimeUnit.MINUTES.toNanos(1);
+
+    /**
+     * Priority classes of queries, in order of admission.
+     */
+    public enum Priority {
+        /**
+         * Node level metrics, e.g. thread pools and caches.
+         */
+        NODE,
+        /**
+         * Table bound metrics, shed on overload.
+         */
+        TABLE
+    }
+
+    /**
+     * Reasons of rejecting queries.
+     */
+    private enum Reason {
+        QUEUE_FULL("queue_full"),
+        OVERLOADED("overloaded");
+
+        private final String label;
+
+        Reason(String label) {
+            this.label = label;
+        }
+    }
+
+    private final ScheduledExecutorService executor;
+    private final boolean limited;
+    private final double tokensPerNano;
+    private final double burst;
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final long shedLatencyNanos;
+    private final LongSupplier clock;
+    private final Map<Priority,Deque<Admission<?>>> queues = new EnumMap<>(Priority.class);
+    private double tokens;
+    private long refilled;
+    private int inFlight = 0;
+    private double responseNanos = -1;
+    private boolean shedding = false;
+    private long lastProbe;
+    private boolean drainScheduled = false;
+    private final long[][] rejections = new long[Priority.values().length][Reason.values().length];
+    private long rejectedSinceWarning = 0;
+    private long lastWarning;
+    private Metric metric;
+    private SeriesHandle[][] rejectionHandles;
+
+    /**
+     * Create the governor instance.
+     * @param executor executor deferring admissions until tokens are available
+     * @param rate max queries started per second
+     * @param burst max queries started at once after idling
+     * @param maxInFlight max queries in flight
+     * @param maxQueued max queries waiting per priority class
+     * @param shedLatency smoothed response time low priority queries are shed on
+     */
+    public LoadGovernor(ScheduledExecutorService executor, double rate, int burst, int maxInFlight, int maxQueued, Duration shedLatency) {
+        this(executor, rate, burst, maxInFlight, maxQueued, shedLatency, System::nanoTime);
+    }
+
+    LoadGovernor(ScheduledExecutorService executor, double rate, int burst, int maxInFlight, int maxQueued, Duration shedLatency, LongSupplier clock) {
+        this(true, executor, rate, burst, maxInFlight, maxQueued, shedLatency, clock);
+    }
+
+    private LoadGovernor(boolean limited, ScheduledExecutorService executor, double rate, int burst, int maxInFlight, int maxQueued, Duration shedLatency, LongSupplier clock) {
+        this.limited = limited;
+        this.executor = executor;
+        this.tokensPerNano = rate / TimeUnit.SECONDS.toNanos(1);
+        this.burst = Math.max(1, burst);
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.maxQueued = maxQueued;
+        this.shedLatencyNanos = shedLatency.toNanos();
+        this.clock = clock;
+        for (Priority priority : Priority.values())
+            queues.put(priority, new ArrayDeque<>());
+        this.tokens = this.burst;
+        this.refilled = clock.getAsLong();
+        this.lastWarning = this.refilled - WARN_INTERVAL;
+    }
+
+    /**
+     * Create a governor starting all queries at once, without any limits.
+     * @return the governor instance
+     */
+    public static LoadGovernor unlimited() {
+        return new LoadGovernor(false, null, 0, 1, 1, 0, Duration.ZERO, System::nanoTime);
+    }
+
+    /**
+     * Submit a query for admission. The query is started once admitted, the
+     * returned stage completes with its result. Rejected queries complete
+     * exceptionally with a RejectedExecutionException.
+     * @param <T> type of the query result
+     * @param priority priority class of the query
+     * @param query supplier starting the query
+     * @return stage completing with the result of the query
+     */
+    public <T> CompletionStage<T> submit(Priority priority, Supplier<? extends CompletionStage<T>> query) {
+        return submit(priority, true, query);
+    }
+
+    /**
+     * Submit a query for admission. The response time of unmeasured queries,
+     * e.g. scans of many pages, is not accounted for shedding.
+     * @param <T> type of the query result
+     * @param priority priority class of the query
+     * @param measured whether the response time of the query is accounted
+     * @param query supplier starting the query
+     * @return stage completing with the result of the query
+     */
+    public <T> CompletionStage<T> submit(Priority priority, boolean measured, Supplier<? extends CompletionStage<T>> query) {
+        if (!limited) {
+            try {
+                return query.get();
+            } catch (RuntimeException ex) {
+                return CompletableFuture.failedFuture(ex);
+            }
+        }
+        Admission<T> admission = new Admission<>(priority, measured, query);
+        synchronized (this) {
+            Deque<Admission<?>> queue = queues.get(priority);
+            if (queue.size() >= maxQueued)
+                reject(admission, Reason.QUEUE_FULL);
+            else if (priority == Priority.TABLE && shedding && clock.getAsLong() - lastProbe < PROBE_INTERVAL)
+                reject(admission, Reason.OVERLOADED);
+            else
+                queue.add(admission);
+        }
+        if (admission.rejection != null)
+            admission.rejected();
+        drain();
+        return admission.result;
+    }
+
+    /**
+     * Whether low priority queries are being shed.
+     * @return true if the node is considered overloaded
+     */
+    public synchronized boolean isShedding() {
+        return shedding;
+    }
+
+    /**
+     * Get the number of queries in flight.
+     * @return queries in flight
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Get the number of queries rejected.
+     * @param priority priority class of the queries
+     * @return number of queries rejected for any reason
+     */
+    public synchronized long getRejections(Priority priority) {
+        long count = 0;
+        for (long rejected : rejections[priority.ordinal()])
+            count += rejected;
+        return count;
+    }
+
+    /**
+     * Create the metric exporting the queries rejected, by priority and
+     * reason. The metric needs to be added to the Repository by the caller.
+     * @param commonLabels labels applied to the metric
+     * @return the metric
+     * @throws MetricException if the metric can't be created
+     */
+    public synchronized Metric createMetric(List<Label> commonLabels) throws MetricException {
+        Metric created = new Metric.Builder()
+                .withName("cql_metrics_collector_rejected_queries")
+                .withHelp("Collection queries rejected by the load governor, by priority and reason.")
+                .withType(MetricType.COUNTER)
+                .withEviction(false)
+                .withCommonLabels(commonLabels)
+                .build();
+        SeriesHandle[][] handles = new SeriesHandle[Priority.values().length][Reason.values().length];
+        for (Priority priority : Priority.values()) {
+            for (Reason reason : Reason.values()) {
+                SeriesHandle handle = created.addInstance(new LabelListBuilder()
+                        .addLabel("priority", priority.name().toLowerCase())
+                        .addLabel("reason", reason.label)
+                        .build());
+                created.setValue(handle, rejections[priority.ordinal()][reason.ordinal()]);
+                handles[priority.ordinal()][reason.ordinal()] = handle;
+            }
+        }
+        rejectionHandles = handles;
+        metric = created;
+        return created;
+    }
+
+    /**
+     * Get the metric exporting the queries rejected.
+     * @return the metric, or null if not created yet
+     */
+    public synchronized Metric getMetric() {
+        return metric;
+    }
+
+    /**
+     * Reject a query, count the rejection and warn about rejections at most
+     * once per minute. Called holding the lock, the admission is to be
+     * completed after leaving it.
+     */
+    private void reject(Admission<?> admission, Reason reason) {
+        long count = ++rejections[admission.priority.ordinal()][reason.ordinal()];
+        if (metric != null)
+            metric.setValue(rejectionHandles[admission.priority.ordinal()][reason.ordinal()], count);
+        rejectedSinceWarning++;
+        long now = clock.getAsLong();
+        if (now - lastWarning >= WARN_INTERVAL) {
+            LOG.warn("{} collection queries rejected since last reported, latest of {} priority as {}. Metrics of rejected queries are not updated.",
+                    rejectedSinceWarning, admission.priority, reason.label);
+            rejectedSinceWarning = 0;
+            lastWarning = now;
+        }
+        admission.rejection = new RejectedExecutionException(
+                reason == Reason.QUEUE_FULL ? "Admission queue of " + admission.priority + " queries is full" : "Node is overloaded");
+    }
+
+    /**
+     * Admit waiting queries as far as tokens and in flight slots are available.
+     */
+    void drain() {
+        List<Admission<?>> admitted = new ArrayList<>();
+        List<Admission<?>> rejected = new ArrayList<>();
+        synchronized (this) {
+            long now = clock.getAsLong();
+            tokens = Math.min(burst, tokens + (now - refilled) * tokensPerNano);
+            refilled = now;
+            for (Priority priority : Priority.values()) {
+                Deque<Admission<?>> queue = queues.get(priority);
+                while (!queue.isEmpty() && inFlight < maxInFlight && tokens >= 1) {
+                    Admission<?> admission = queue.poll();
+                    if (priority == Priority.TABLE && shedding) {
+                        if (now - lastProbe < PROBE_INTERVAL) {
+                            reject(admission, Reason.OVERLOADED);
+                            rejected.add(admission);
+                            continue;
+                        }
+                        lastProbe = now;
+                    }
+                    tokens -= 1;
+                    inFlight++;
+                    admitted.add(admission);
+                }
+            }
+            if (tokens < 1 && inFlight < maxInFlight && !drainScheduled && queues.values().stream().anyMatch(q -> !q.isEmpty())) {
+                drainScheduled = true;
+                long delay = (long) Math.ceil((1 - tokens) / tokensPerNano);
+                executor.schedule(this::scheduledDrain, delay, TimeUnit.NANOSECONDS);
+            }
+        }
+        for (Admission<?> admission : rejected)
+            admission.rejected();
+        for (Admission<?> admission : admitted)
+            admission.start();
+    }
+
+    private void scheduledDrain() {
+        synchronized (this) {
+            drainScheduled = false;
+        }
+        drain();
+    }
+
+    private void completed(long responseTime, boolean measured) {
+        synchronized (this) {
+            inFlight--;
+            if (measured)
+                account(responseTime);
+        }
+        drain();
+    }
+
+    /**
+     * Smooth the response time and switch shedding. Called holding the lock.
+     */
+    private void account(long responseTime) {
+        responseNanos = responseNanos < 0 ? responseTime : ALPHA * responseTime + (1 - ALPHA) * responseNanos;
+        boolean overloaded = responseNanos > shedLatencyNanos;
+        if (overloaded != shedding) {
+            shedding = overloaded;
+            lastProbe = clock.getAsLong();
+            if (overloaded)
+                LOG.warn("Response time of Cassandra rose to {}ms, shedding table queries.", (long) (responseNanos / 1_000_000));
+            else
+                LOG.info("Response time of Cassandra recovered to {}ms, admitting table queries.", (long) (responseNanos / 1_000_000));
+        }
+    }
+
+    private final class Admission<T> {
+        private final Priority priority;
+        private final boolean measured;
+        private final Supplier<? extends CompletionStage<T>> query;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private RejectedExecutionException rejection;
+
+        private Admission(Priority priority, boolean measured, Supplier<? extends CompletionStage<T>> query) {
+            this.priority = priority;
+            this.measured = measured;
+            this.query = query;
+        }
+
+        private void rejected() {
+            result.completeExceptionally(rejection);
+        }
+
+        private void start() {
+            long started = clock.getAsLong();
+            CompletionStage<T> stage;
+            try {
+                stage = query.get();
+            } catch (RuntimeException ex) {
+                stage = CompletableFuture.failedFuture(ex);
+            }
+            stage.whenComplete((value, ex) -> {
+                completed(clock.getAsLong() - started, measured);
+                if (ex != null)
+                    result.completeExceptionally(ex);
+                else
+                    result.complete(value);
+            });
+        }
+    }
+}
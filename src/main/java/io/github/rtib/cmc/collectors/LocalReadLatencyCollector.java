@@ -15,12 +15,14 @@
  */
 package io.github.rtib.cmc.collectors;
 
+import com.datastax.oss.driver.api.core.MappedAsyncPagingIterable;
 import com.google.auto.service.AutoService;
 import io.github.rtib.cmc.metrics.MetricException;
 import io.github.rtib.cmc.model.MapperSystemViews;
 import io.github.rtib.cmc.model.MetricsIdentifier;
 import io.github.rtib.cmc.model.system_views.Latency;
 import io.github.rtib.cmc.model.DaoSystemViewsV40;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Collect local_read_latency metrics for every table.
@@ -44,13 +46,18 @@ public final class LocalReadLatencyCollector extends AbstractLatencyCollector {
     }
 
     @Override
-    protected Thread createCollectorTask(MetricsIdentifier id) throws MetricException {
+    protected AbstractAsyncTask<?> createCollectorTask(MetricsIdentifier id) throws MetricException {
         return new Collector(id) {
             @Override
-            protected Latency getLatency() {
-                return dao.LocalReadLatency(table.keyspace_name(), table.table_name());
+            protected CompletionStage<? extends Latency> getLatency() {
+                return dao.LocalReadLatencyAsync(table.keyspace_name(), table.table_name());
             }
         };
     }
+
+    @Override
+    protected CompletionStage<? extends MappedAsyncPagingIterable<? extends Latency>> scanLatencies() {
+        return dao.scanLocalReadLatencyAsync();
+    }
     
 }
@@ -15,12 +15,14 @@
  */
 package io.github.rtib.cmc.collectors;
 
+import com.datastax.oss.driver.api.core.MappedAsyncPagingIterable;
 import com.google.auto.service.AutoService;
 import io.github.rtib.cmc.metrics.MetricException;
 import io.github.rtib.cmc.model.DaoSystemViewsV5;
 import io.github.rtib.cmc.model.MapperSystemViews;
 import io.github.rtib.cmc.model.MetricsIdentifier;
 import io.github.rtib.cmc.model.system_views.TableSize;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Collector of max sstable size for every table.
@@ -45,12 +47,22 @@ public class MaxSstableSizeCollector extends AbstractTableSizeCollector {
     }
 
     @Override
-    protected Thread createCollectorTask(MetricsIdentifier id) throws MetricException {
+    protected AbstractAsyncTask<?> createCollectorTask(MetricsIdentifier id) throws MetricException {
         return new Collector(id) {
             @Override
-            protected TableSize getTableSize() {
-                return dao.MaxSstableSize(table.keyspace_name(), table.table_name());
+            protected CompletionStage<? extends TableSize> getTableSize() {
+                return dao.MaxSstableSizeAsync(table.keyspace_name(), table.table_name());
             }
         };
     }
+
+    @Override
+    protected CardinalityBudget.Aggregation aggregation() {
+        return CardinalityBudget.Aggregation.MAX;
+    }
+
+    @Override
+    protected CompletionStage<? extends MappedAsyncPagingIterable<? extends TableSize>> scanTableSizes() {
+        return dao.scanMaxSstableSizeAsync();
+    }
 }
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.collectors;
+
+import io.github.rtib.cmc.metrics.Label;
+import io.github.rtib.cmc.metrics.LabelListBuilder;
+import io.github.rtib.cmc.metrics.Metric;
+import io.github.rtib.cmc.metrics.MetricException;
+import io.github.rtib.cmc.metrics.MetricType;
+import io.github.rtib.cmc.metrics.SeriesHandle;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Planner of the phase offsets of periodic collection tasks. The weight of
+ * the planned tasks is accounted to a histogram of the load per second of the
+ * planning window, which is exported as a metric. A task is planned at the
+ * least loaded offset of its interval, probing from a seed derived from a
+ * hash of its owner and identifier, thus tasks of equal load keep their
+ * hashed phase, while heavy tasks are kept apart. Offsets of planned tasks
+ * are recorded to be released, planning a task again replaces its plan.
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public final class PhasePlanner {
+
+    private final int window;
+    private final double[] histogram;
+    private final Metric metric;
+    private final List<SeriesHandle> seconds = new ArrayList<>();
+    private final Map<List<Object>,Plan> planned = new HashMap<>();
+
+    /**
+     * Create the planner instance.
+     * @param window length of the histogram, usually the collection interval
+     * @param commonLabels labels applied to the exported histogram
+     * @throws MetricException if the histogram metric can't be created
+     */
+    public PhasePlanner(Duration window, List<Label> commonLabels) throws MetricException {
+        this.window = (int) Math.max(1, window.toSeconds());
+        this.histogram = new double[this.window];
+        this.metric = new Metric.Builder()
+                .withName("cql_metrics_collector_planned_load")
+                .withHelp("Planned collection load in rows queried, by second of the planning window.")
+                .withType(MetricType.GAUGE)
+                .withEviction(false)
+                .withCommonLabels(commonLabels)
+                .build();
+        for (int second = 0; second < this.window; second++) {
+            List<Label> labels = new LabelListBuilder()
+                    .addLabel("second", Integer.toString(second))
+                    .build();
+            SeriesHandle handle = metric.addInstance(labels);
+            seconds.add(handle);
+            metric.setValue(handle, 0);
+        }
+    }
+
+    /**
+     * Get the metric exporting the load histogram.
+     * @return histogram metric
+     */
+    public Metric getMetric() {
+        return metric;
+    }
+
+    /**
+     * Get the hashed phase offset of a task without accounting its load.
+     * @param owner the owner of the task, usually the collector
+     * @param key identifier of the task within its owner
+     * @param interval interval of the task, the offset is within
+     * @return offset of the task
+     */
+    public Duration offset(Object owner, Object key, Duration interval) {
+        long length = Math.max(1, interval.toSeconds());
+        return Duration.ofSeconds(Math.floorMod(hash(owner, key), length));
+    }
+
+    /**
+     * Plan a task and account its load.
+     * @param owner the owner of the task, usually the collector
+     * @param key identifier of the task within its owner
+     * @param interval interval of the task
+     * @param weight load of a single execution of the task in rows queried
+     * @return offset of the task
+     */
+    public synchronized Duration plan(Object owner, Object key, Duration interval, double weight) {
+        long length = Math.max(1, interval.toSeconds());
+        long seed = offset(owner, key, interval).toSeconds();
+        long offset = seed;
+        double least = Double.MAX_VALUE;
+        for (long probe = 0; probe < Math.min(length, window); probe++) {
+            long candidate = (seed + probe) % length;
+            double load = load(candidate, interval.toSeconds());
+            if (load < least) {
+                least = load;
+                offset = candidate;
+            }
+        }
+        Plan previous = planned.put(List.of(owner, key), new Plan(offset, interval.toSeconds(), weight));
+        if (previous != null)
+            account(previous.offset, previous.interval, -previous.weight);
+        account(offset, interval.toSeconds(), weight);
+        return Duration.ofSeconds(offset);
+    }
+
+    /**
+     * Change the weight of a planned task, keeping its offset.
+     * @param owner the owner of the task
+     * @param key identifier of the task within its owner
+     * @param weight new load of a single execution of the task
+     * @return true if the task was planned, false otherwise
+     */
+    public synchronized boolean reweigh(Object owner, Object key, double weight) {
+        Plan plan = planned.get(List.of(owner, key));
+        if (plan == null)
+            return false;
+        planned.put(List.of(owner, key), new Plan(plan.offset, plan.interval, weight));
+        account(plan.offset, plan.interval, weight - plan.weight);
+        return true;
+    }
+
+    /**
+     * Release a planned task and its load. The load is released as recorded
+     * when the task was planned.
+     * @param owner the owner of the task
+     * @param key identifier of the task within its owner
+     */
+    public synchronized void release(Object owner, Object key) {
+        Plan plan = planned.remove(List.of(owner, key));
+        if (plan != null)
+            account(plan.offset, plan.interval, -plan.weight);
+    }
+
+    /**
+     * Get the load histogram.
+     * @return copy of the planned load of each second of the window
+     */
+    public synchronized double[] getHistogram() {
+        return histogram.clone();
+    }
+
+    private void account(long offset, long interval, double weight) {
+        if (interval <= 0)
+            return;
+        if (interval > window) {
+            // executed less than once per window, account its average load
+            add((int) (offset % window), weight * window / interval);
+            return;
+        }
+        for (long second = offset; second < window; second += interval)
+            add((int) second, weight);
+    }
+
+    /**
+     * Get the load of the busiest second a task at an offset is executed at.
+     */
+    private double load(long offset, long interval) {
+        if (interval <= 0)
+            return 0;
+        if (interval > window)
+            return histogram[(int) (offset % window)];
+        double max = 0;
+        for (long second = offset; second < window; second += interval)
+            max = Math.max(max, histogram[(int) second]);
+        return max;
+    }
+
+    private void add(int second, double weight) {
+        histogram[second] += weight;
+        metric.setValue(seconds.get(second), histogram[second]);
+    }
+
+    /**
+     * Offset, interval and weight a task has been planned with.
+     */
+    private static final class Plan {
+        private final long offset;
+        private final long interval;
+        private final double weight;
+
+        private Plan(long offset, long interval, double weight) {
+            this.offset = offset;
+            this.interval = interval;
+            this.weight = weight;
+        }
+    }
+
+    private static long hash(Object owner, Object key) {
+        long h = owner.getClass().getName().hashCode() * 0x9E3779B97F4A7C15L + key.hashCode();
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+}
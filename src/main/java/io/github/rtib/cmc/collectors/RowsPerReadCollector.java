@@ -15,12 +15,14 @@
  */
 package io.github.rtib.cmc.collectors;
 
+import com.datastax.oss.driver.api.core.MappedAsyncPagingIterable;
 import com.google.auto.service.AutoService;
 import io.github.rtib.cmc.metrics.MetricException;
 import io.github.rtib.cmc.model.MapperSystemViews;
 import io.github.rtib.cmc.model.MetricsIdentifier;
 import io.github.rtib.cmc.model.system_views.TableSummary;
 import io.github.rtib.cmc.model.DaoSystemViewsV40;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Collector of rows per read metrics for every table.
@@ -45,13 +47,17 @@ public class RowsPerReadCollector extends AbstractTableSummaryCollector {
     }
 
     @Override
-    protected Thread createCollectorTask(MetricsIdentifier id) throws MetricException {
+    protected AbstractAsyncTask<?> createCollectorTask(MetricsIdentifier id) throws MetricException {
         return new Collector(id) {
             @Override
-            protected TableSummary getSummary() {
-                return dao.RowsPerRead(table.keyspace_name(), table.table_name());
+            protected CompletionStage<? extends TableSummary> getSummary() {
+                return dao.RowsPerReadAsync(table.keyspace_name(), table.table_name());
             }
         };
     }
 
+    @Override
+    protected CompletionStage<? extends MappedAsyncPagingIterable<? extends TableSummary>> scanSummaries() {
+        return dao.scanRowsPerReadAsync();
+    }
 }
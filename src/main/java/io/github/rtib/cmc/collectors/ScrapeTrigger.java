@@ -0,0 +1,112 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.collectors;
+
+import io.github.rtib.cmc.metrics.Repository;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Trigger of collection cycles on scrape. A cycle is started only if the last
+ * one started longer ago than the freshness window. Concurrent scrapes share
+ * the cycle in flight instead of starting their own. A completed cycle
+ * advances the publish epoch of the repository.
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public final class ScrapeTrigger {
+    private static final Logger LOG = LoggerFactory.getLogger(ScrapeTrigger.class);
+
+    private final Collection<? extends ICollector> collectors;
+    private final long freshnessNanos;
+    private final Duration timeout;
+    private final LongSupplier clock;
+    private final AtomicReference<CompletableFuture<Void>> inFlight = new AtomicReference<>();
+    private volatile long lastStarted;
+    private volatile boolean collected = false;
+
+    /**
+     * Create the trigger instance.
+     * @param collectors the active collectors, collection cycles are run on
+     * @param freshness max age of collected metrics not triggering a new cycle
+     * @param timeout max time a scrape should wait for a collection cycle
+     */
+    public ScrapeTrigger(Collection<? extends ICollector> collectors, Duration freshness, Duration timeout) {
+        this(collectors, freshness, timeout, System::nanoTime);
+    }
+
+    ScrapeTrigger(Collection<? extends ICollector> collectors, Duration freshness, Duration timeout, LongSupplier clock) {
+        this.collectors = collectors;
+        this.freshnessNanos = freshness.toNanos();
+        this.timeout = timeout;
+        this.clock = clock;
+    }
+
+    /**
+     * Get the max time a scrape should wait for a collection cycle.
+     * @return timeout Duration
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Make sure the metrics are not older than the freshness window. Either
+     * returns a completed future if the last cycle is recent enough, or the
+     * future of the cycle in flight, starting one if needed.
+     * @return future completing when the metrics are fresh
+     */
+    public CompletableFuture<Void> refresh() {
+        CompletableFuture<Void> running = inFlight.get();
+        if (running != null)
+            return running;
+        if (collected && clock.getAsLong() - lastStarted < freshnessNanos)
+            return CompletableFuture.completedFuture(null);
+
+        CompletableFuture<Void> cycle = new CompletableFuture<>();
+        if (!inFlight.compareAndSet(null, cycle))
+            return refresh();
+
+        long started = clock.getAsLong();
+        LOG.debug("Starting collection cycle of {} collectors.", collectors.size());
+        startCycle().whenComplete((v, ex) -> {
+            if (ex != null)
+                LOG.atWarn().setCause(ex).log("Collection cycle completed with failures.");
+            lastStarted = started;
+            collected = true;
+            Repository.getInstance().advanceEpoch();
+            inFlight.set(null);
+            cycle.complete(null);
+        });
+        return cycle;
+    }
+
+    private CompletableFuture<Void> startCycle() {
+        try {
+            return CompletableFuture.allOf(collectors
+                    .stream()
+                    .map(collector -> collector.collect().toCompletableFuture())
+                    .toArray(CompletableFuture<?>[]::new));
+        } catch (RuntimeException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+}
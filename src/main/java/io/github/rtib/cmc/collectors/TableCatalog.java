@@ -0,0 +1,170 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.collectors;
+
+import com.datastax.oss.driver.api.core.metadata.schema.KeyspaceMetadata;
+import com.datastax.oss.driver.api.core.metadata.schema.SchemaChangeListenerBase;
+import com.datastax.oss.driver.api.core.metadata.schema.TableMetadata;
+import io.github.rtib.cmc.model.system_schema.TableName;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Catalog of all tables of the cluster, shared by the table collectors. The
+ * catalog is kept up to date by schema change events of the driver, and is
+ * reconciled with system_schema.tables on a slow interval to catch up with
+ * missed events. Subscribed listeners are notified about the tables added and
+ * removed only.
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public final class TableCatalog extends SchemaChangeListenerBase {
+    private static final Logger LOG = LoggerFactory.getLogger(TableCatalog.class);
+
+    private final Set<TableName> tables = new HashSet<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Listener of table catalog changes.
+     */
+    public interface Listener {
+        /**
+         * A table has been added to the catalog.
+         * @param table name of the table
+         */
+        void tableAdded(TableName table);
+
+        /**
+         * A table has been removed from the catalog.
+         * @param table name of the table
+         */
+        void tableRemoved(TableName table);
+    }
+
+    /**
+     * Subscribe a listener. The listener is notified about all tables already
+     * known as being added.
+     * @param listener the listener to be notified on changes
+     */
+    public synchronized void subscribe(Listener listener) {
+        listeners.add(listener);
+        tables.forEach(listener::tableAdded);
+    }
+
+    /**
+     * Unsubscribe a listener.
+     * @param listener the listener not to be notified anymore
+     */
+    public synchronized void unsubscribe(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Get the tables currently known.
+     * @return copy of the set of tables
+     */
+    public synchronized Set<TableName> getTables() {
+        return Set.copyOf(tables);
+    }
+
+    /**
+     * Reconcile the catalog with the complete list of tables. Listeners are
+     * notified about the difference. Added tables are notified while
+     * iterating, removed ones once the iteration completed.
+     * @param current all tables currently existing
+     */
+    public synchronized void reconcile(Iterable<TableName> current) {
+        Set<TableName> existing = new HashSet<>();
+        int added = 0;
+        for (TableName table : current) {
+            existing.add(table);
+            if (add(table))
+                added++;
+        }
+        List<TableName> removed = new ArrayList<>();
+        for (TableName table : tables) {
+            if (!existing.contains(table))
+                removed.add(table);
+        }
+        removed.forEach(this::remove);
+        LOG.debug("Table catalog reconciled: {} added, {} removed, {} overall.", added, removed.size(), tables.size());
+    }
+
+    @Override
+    public synchronized void onTableCreated(TableMetadata table) {
+        add(valueOf(table));
+    }
+
+    @Override
+    public synchronized void onTableDropped(TableMetadata table) {
+        remove(valueOf(table));
+    }
+
+    /**
+     * Remove all tables of a dropped keyspace. The driver doesn't notify
+     * about the tables dropped along with their keyspace.
+     * @param keyspace metadata of the dropped keyspace
+     */
+    @Override
+    public void onKeyspaceDropped(KeyspaceMetadata keyspace) {
+        removeKeyspace(keyspace.getName().asInternal());
+    }
+
+    /**
+     * Remove all tables of a keyspace.
+     * @param keyspace name of the keyspace
+     */
+    synchronized void removeKeyspace(String keyspace) {
+        List<TableName> removed = new ArrayList<>();
+        for (TableName table : tables) {
+            if (table.keyspace_name().equals(keyspace))
+                removed.add(table);
+        }
+        removed.forEach(this::remove);
+    }
+
+    /**
+     * Nothing to be released on closing the session, subscribed listeners
+     * unsubscribe on their own. Overridden not to throw.
+     */
+    @Override
+    public void close() {
+    }
+
+    private boolean add(TableName table) {
+        if (!tables.add(table))
+            return false;
+        LOG.debug("Table added: {}", table);
+        listeners.forEach(listener -> listener.tableAdded(table));
+        return true;
+    }
+
+    private void remove(TableName table) {
+        if (!tables.remove(table))
+            return;
+        LOG.debug("Table removed: {}", table);
+        listeners.forEach(listener -> listener.tableRemoved(table));
+    }
+
+    private static TableName valueOf(TableMetadata table) {
+        return new TableName(table.getKeyspace().asInternal(), table.getName().asInternal());
+    }
+}
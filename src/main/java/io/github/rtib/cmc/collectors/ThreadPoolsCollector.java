@@ -16,20 +16,18 @@
 package io.github.rtib.cmc.collectors;
 
 import com.google.auto.service.AutoService;
-import io.github.rtib.cmc.metrics.Label;
 import io.github.rtib.cmc.metrics.LabelListBuilder;
 import io.github.rtib.cmc.metrics.Metric;
 import io.github.rtib.cmc.metrics.MetricException;
 import io.github.rtib.cmc.metrics.MetricType;
 import io.github.rtib.cmc.metrics.Repository;
+import io.github.rtib.cmc.metrics.SampleBatch;
+import io.github.rtib.cmc.metrics.SeriesHandle;
 import io.github.rtib.cmc.model.MapperSystemViews;
 import io.github.rtib.cmc.model.MetricsIdentifier;
 import io.github.rtib.cmc.model.system_views.ThreadPoolName;
 import io.github.rtib.cmc.model.system_views.ThreadPools;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.CompletionStage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import io.github.rtib.cmc.model.DaoSystemViewsV40;
@@ -96,49 +94,61 @@ public class ThreadPoolsCollector extends AbstractCollector {
     }
 
     @Override
-    protected Thread createCollectorTask(MetricsIdentifier id) throws MetricException {
+    protected AbstractAsyncTask<?> createCollectorTask(MetricsIdentifier id) throws MetricException {
         return new Collector(id);
     }
 
     @Override
-    protected List<? extends MetricsIdentifier> getInstances() {
-        return dao.listThreadPools().all();
+    protected Iterable<? extends MetricsIdentifier> getInstances() {
+        return dao.listThreadPools();
     }
 
-    private class Collector extends Thread {
+    private class Collector extends AbstractAsyncTask<ThreadPools> {
         private final ThreadPoolName threadpool;
-        private final String counterName = "completed_tasks";
-        private final Set<String> gaugeNames = Set.of(
-                "active_tasks",
-                "active_tasks_limit",
-                "blocked_tasks",
-                "blocked_tasks_all_time",
-                "pending_tasks"
-        );
-        private final Map<String,List<Label>> metricLabels = new HashMap<>();
+        private final SeriesHandle activeTasks;
+        private final SeriesHandle activeTasksLimit;
+        private final SeriesHandle blockedTasks;
+        private final SeriesHandle blockedTasksAllTime;
+        private final SeriesHandle pendingTasks;
+        private final SeriesHandle completedTasks;
 
         public Collector(MetricsIdentifier id) {
+            super(id);
             threadpool = (ThreadPoolName) id;
-            for (String gaugeName : gaugeNames) {
-                var labels = LabelListBuilder.valueOf(threadpool, gaugeName);
-                metricLabels.put(gaugeName, labels);
-                metricGauge.addInstance(labels);
-            }
-            var labels = LabelListBuilder.valueOf(threadpool, counterName);
-            metricLabels.put(counterName, labels);
-            metricCounter.addInstance(labels);
+            activeTasks = metricGauge.addInstance(LabelListBuilder.valueOf(threadpool, "active_tasks"));
+            activeTasksLimit = metricGauge.addInstance(LabelListBuilder.valueOf(threadpool, "active_tasks_limit"));
+            blockedTasks = metricGauge.addInstance(LabelListBuilder.valueOf(threadpool, "blocked_tasks"));
+            blockedTasksAllTime = metricGauge.addInstance(LabelListBuilder.valueOf(threadpool, "blocked_tasks_all_time"));
+            pendingTasks = metricGauge.addInstance(LabelListBuilder.valueOf(threadpool, "pending_tasks"));
+            completedTasks = metricCounter.addInstance(LabelListBuilder.valueOf(threadpool, "completed_tasks"));
         }
 
         @Override
-        public void run() {
-            ThreadPools tpInstance = dao.threadPool(threadpool.name());
+        protected void release() {
+            metricGauge.removeInstance(activeTasks);
+            metricGauge.removeInstance(activeTasksLimit);
+            metricGauge.removeInstance(blockedTasks);
+            metricGauge.removeInstance(blockedTasksAllTime);
+            metricGauge.removeInstance(pendingTasks);
+            metricCounter.removeInstance(completedTasks);
+        }
+
+        @Override
+        protected CompletionStage<? extends ThreadPools> query() {
+            return dao.threadPoolAsync(threadpool.name());
+        }
+
+        @Override
+        protected void collect(ThreadPools tpInstance) {
             LOG.debug("Metrics acquired: {}", tpInstance);
-            metricGauge.setValue(metricLabels.get("active_tasks"), tpInstance.active_tasks());
-            metricGauge.setValue(metricLabels.get("active_tasks_limit"), tpInstance.active_tasks_limit());
-            metricGauge.setValue(metricLabels.get("blocked_tasks"), tpInstance.blocked_tasks());
-            metricGauge.setValue(metricLabels.get("blocked_tasks_all_time"), tpInstance.blocked_tasks_all_time());
-            metricGauge.setValue(metricLabels.get("pending_tasks"), tpInstance.pending_tasks());
-            metricCounter.setValue(metricLabels.get("completed_tasks"), tpInstance.completed_tasks());
+            new SampleBatch(6)
+                    .add(activeTasks, tpInstance.active_tasks())
+                    .add(activeTasksLimit, tpInstance.active_tasks_limit())
+                    .add(blockedTasks, tpInstance.blocked_tasks())
+                    .add(blockedTasksAllTime, tpInstance.blocked_tasks_all_time())
+                    .add(pendingTasks, tpInstance.pending_tasks())
+                    .add(completedTasks, tpInstance.completed_tasks())
+                    .publish();
         }
     }
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.exporter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content encodings of responses, negotiated by the Accept-Encoding header
+ * of the request.
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+enum Encoding {
+    IDENTITY(null),
+    GZIP("gzip"),
+    DEFLATE("deflate");
+
+    private final String token;
+
+    Encoding(String token) {
+        this.token = token;
+    }
+
+    /**
+     * Get the value of the Content-Encoding header.
+     * @return content coding, or null if the content is not encoded
+     */
+    String getToken() {
+        return token;
+    }
+
+    /**
+     * Encode a response body.
+     * @param body body to be encoded
+     * @return the encoded body, the body itself if not encoded
+     * @throws IOException if encoding failed
+     */
+    byte[] encode(byte[] body) throws IOException {
+        if (this == IDENTITY)
+            return body;
+        // exposition text compresses about ten times
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream(body.length / 8 + 64);
+        try (OutputStream out = this == GZIP ? new GZIPOutputStream(encoded, 8192) : new DeflaterOutputStream(encoded)) {
+            out.write(body);
+        }
+        return encoded.toByteArray();
+    }
+
+    /**
+     * Choose the encoding of a response. Gzip is preferred over deflate if
+     * both are accepted with the same quality.
+     * @param acceptEncoding value of the Accept-Encoding header, may be null
+     * @return the accepted encoding of highest quality, identity if none
+     */
+    static Encoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank())
+            return IDENTITY;
+        Encoding chosen = IDENTITY;
+        double best = 0;
+        double wildcard = 0;
+        // negative if not listed, thus covered by the wildcard
+        double[] quality = {-1, -1, -1};
+        for (String element : acceptEncoding.split(",")) {
+            String[] parameters = element.split(";");
+            String coding = parameters[0].trim().toLowerCase();
+            double q = 1;
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException ex) {
+                        q = 0;
+                    }
+                }
+            }
+            if (coding.equals("*"))
+                wildcard = q;
+            else if (coding.equals("gzip") || coding.equals("x-gzip"))
+                quality[GZIP.ordinal()] = Math.max(quality[GZIP.ordinal()], q);
+            else if (coding.equals("deflate"))
+                quality[DEFLATE.ordinal()] = Math.max(quality[DEFLATE.ordinal()], q);
+        }
+        for (Encoding encoding : new Encoding[] {GZIP, DEFLATE}) {
+            double q = quality[encoding.ordinal()] < 0 ? wildcard : quality[encoding.ordinal()];
+            if (q > best) {
+                best = q;
+                chosen = encoding;
+            }
+        }
+        return chosen;
+    }
+}
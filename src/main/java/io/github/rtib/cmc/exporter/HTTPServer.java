@@ -59,6 +59,7 @@ public class HTTPServer implements Closeable {
         this.threadpool = threadpool;
         this.server.createContext("/", new RootHander());
         this.server.createContext("/metrics", new MetricsHandler());
+        this.server.createContext("/history", new HistoryHandler());
     }
 
     /**
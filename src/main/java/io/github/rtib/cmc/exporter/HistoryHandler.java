@@ -0,0 +1,126 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.exporter;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import io.github.rtib.cmc.metrics.Metric;
+import io.github.rtib.cmc.metrics.MetricType;
+import io.github.rtib.cmc.metrics.Repository;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Endpoint serving the retained sample history of the metrics, each sample as
+ * an instance line with its timestamp. The metrics served can be selected by
+ * the query parameters prefix and match, see MetricSelection. The samples
+ * served can be limited to a time range by the parameters from and to, in
+ * milliseconds since the epoch. With the parameter rate, the per second rate
+ * of increase over the samples in the range is served for each series
+ * instead of the samples, typed as gauge. Metrics keeping no history are
+ * skipped, if none keeps a history, the endpoint is not found.
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public class HistoryHandler implements HttpHandler {
+    private static final Logger LOG = LoggerFactory.getLogger(HistoryHandler.class);
+    private final static String contentType = "text/plain; charset=utf-8";
+    private final static Repository repo = Repository.getInstance();
+
+    /**
+     * Default constructor.
+     */
+    public HistoryHandler() {
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            String query = exchange.getRequestURI().getRawQuery();
+            Map<String,String> parameters = parameters(query);
+            long from;
+            long to;
+            try {
+                from = Long.parseLong(parameters.getOrDefault("from", Long.toString(Long.MIN_VALUE)));
+                to = Long.parseLong(parameters.getOrDefault("to", Long.toString(Long.MAX_VALUE)));
+            } catch (NumberFormatException ex) {
+                LOG.atDebug().log("Invalid time range requested: {}", ex.getMessage());
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            if (repo.listMetrics().stream().noneMatch(Metric::hasHistory)) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            boolean rate = parameters.containsKey("rate");
+            Collection<Metric> selected = MetricSelection.select(repo, query);
+            ByteArrayOutputStream body = new ByteArrayOutputStream(64 * 1024);
+            for (Metric metric : selected != null ? selected : repo.listMetrics()) {
+                if (!metric.hasHistory())
+                    continue;
+                metric.writeHelp(body);
+                if (rate) {
+                    metric.writeType(body, MetricType.GAUGE);
+                    metric.writeRates(body, from, to);
+                    continue;
+                }
+                metric.writeType(body);
+                metric.writeHistory(body, from, to);
+            }
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(200, body.size() > 0 ? body.size() : -1);
+            try (OutputStream responseBody = exchange.getResponseBody()) {
+                body.writeTo(responseBody);
+            }
+        } finally {
+            exchange.close();
+        }
+        LOG.atInfo().log("{} {} {} {} {} {}", 
+                exchange.getRequestHeaders().getFirst("User-Agent"),
+                exchange.getRemoteAddress(),
+                exchange.getProtocol(),
+                exchange.getRequestMethod(),
+                exchange.getRequestURI(),
+                exchange.getResponseCode()
+                
+        );
+    }
+
+    /**
+     * Parse the parameters of a query, the last value of a repeated one wins.
+     * @param query raw query string, may be null
+     * @return parameters by name, with an empty value if none is given
+     */
+    private static Map<String,String> parameters(String query) {
+        Map<String,String> parameters = new HashMap<>();
+        if (query == null)
+            return parameters;
+        for (String parameter : query.split("&")) {
+            int split = parameter.indexOf('=');
+            String name = split < 0 ? parameter : parameter.substring(0, split);
+            String value = split < 0 ? "" : parameter.substring(split + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+}
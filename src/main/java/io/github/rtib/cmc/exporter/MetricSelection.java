@@ -0,0 +1,83 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.exporter;
+
+import io.github.rtib.cmc.metrics.Metric;
+import io.github.rtib.cmc.metrics.Repository;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Selection of metrics by the query parameters of a request. Metrics are
+ * selected by the prefix of their name with the parameter prefix, and by a
+ * regular expression on their name with the parameter match. Both may be
+ * repeated, metrics selected by any of them are included.
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+final class MetricSelection {
+    private static final Logger LOG = LoggerFactory.getLogger(MetricSelection.class);
+
+    private MetricSelection() {
+    }
+
+    /**
+     * Select the metrics by the query of a request.
+     * @param repo repository to select from
+     * @param query raw query string of the request, may be null
+     * @return metrics selected in order of their names, or null if the query isn't selecting
+     */
+    static Collection<Metric> select(Repository repo, String query) {
+        if (query == null || query.isEmpty())
+            return null;
+        Map<String,Metric> selected = new TreeMap<>();
+        boolean filtered = false;
+        for (String parameter : query.split("&")) {
+            int split = parameter.indexOf('=');
+            if (split < 0)
+                continue;
+            String name = URLDecoder.decode(parameter.substring(0, split), StandardCharsets.UTF_8);
+            String value = URLDecoder.decode(parameter.substring(split + 1), StandardCharsets.UTF_8);
+            List<Metric> metrics;
+            switch (name) {
+                case "prefix":
+                    metrics = repo.selectByPrefix(value);
+                    break;
+                case "match":
+                    try {
+                        metrics = repo.select(Pattern.compile(value));
+                    } catch (PatternSyntaxException ex) {
+                        LOG.atWarn().log("Ignoring invalid match parameter: {}", ex.getMessage());
+                        continue;
+                    }
+                    break;
+                default:
+                    continue;
+            }
+            filtered = true;
+            metrics.forEach(metric -> selected.put(metric.getName(), metric));
+        }
+        return filtered ? selected.values() : null;
+    }
+}
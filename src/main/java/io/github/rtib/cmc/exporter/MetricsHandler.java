@@ -17,21 +17,26 @@ package io.github.rtib.cmc.exporter;
 
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
-import io.github.rtib.cmc.metrics.Metric;
-import io.github.rtib.cmc.metrics.Repository;
+import io.github.rtib.cmc.Context;
+import io.github.rtib.cmc.collectors.ScrapeTrigger;
+import io.github.rtib.cmc.metrics.ExpositionFormat;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Prometheus metrics endpoint handler.
+ * Prometheus metrics endpoint handler. The metrics served can be selected by
+ * the query parameters prefix and match, see MetricSelection.
  * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
  */
 public class MetricsHandler implements HttpHandler {
     private static final Logger LOG = LoggerFactory.getLogger(MetricsHandler.class);
-    private final static String contentType = "text/plain; charset=utf-8";
-    private final static Repository repo = Repository.getInstance();
+    private final static Context context = Context.getInstance();
+    private final static ScrapeCache cache = ScrapeCache.getInstance();
 
     /**
      * Default constructor.
@@ -41,15 +46,22 @@ public class MetricsHandler implements HttpHandler {
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
+        refresh();
         try {
-            exchange.getResponseHeaders().set("Content-Type", contentType);
-            exchange.sendResponseHeaders(200, 0);
-            try (OutputStream responseBody = exchange.getResponseBody()) {
-                for (Metric metric : repo.listMetrics()) {
-                    metric.write(responseBody);
-                    responseBody.flush();
+            ExpositionFormat format = ExpositionFormat.negotiate(exchange.getRequestHeaders().getFirst("Accept"));
+            Encoding encoding = Encoding.negotiate(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            byte[] body = cache.get(exchange.getRequestURI().getRawQuery(), format, encoding);
+            exchange.getResponseHeaders().set("Content-Type", format.getContentType());
+            exchange.getResponseHeaders().set("Vary", "Accept, Accept-Encoding");
+            if (encoding.getToken() != null)
+                exchange.getResponseHeaders().set("Content-Encoding", encoding.getToken());
+            // exact length, no chunked encoding; -1 is sending no body at all
+            boolean head = "HEAD".equals(exchange.getRequestMethod());
+            exchange.sendResponseHeaders(200, head || body.length == 0 ? -1 : body.length);
+            if (!head) {
+                try (OutputStream responseBody = exchange.getResponseBody()) {
+                    responseBody.write(body);
                 }
-                responseBody.close();
             }
         } finally {
             exchange.close();
@@ -65,4 +77,23 @@ public class MetricsHandler implements HttpHandler {
         );
     }
     
+    /**
+     * Wait for fresh metrics, if collecting on scrape. If the collection cycle
+     * doesn't complete in time, the metrics available are served.
+     */
+    private void refresh() {
+        ScrapeTrigger trigger = context.scrapeTrigger;
+        if (trigger == null)
+            return;
+        
+        try {
+            trigger.refresh().get(trigger.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            LOG.atWarn().log("Collection cycle not completed within {}, serving metrics available.", trigger.getTimeout());
+        } catch (ExecutionException ex) {
+            LOG.atWarn().setCause(ex).log("Collection cycle failed, serving metrics available.");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
@@ -40,6 +40,7 @@ public class RootHander implements HttpHandler {
             + " v" + context.projectProperties.getProperty("application-version")
             + "</h1>"
             + "<li><a href=\"/metrics\">/metrics</a> - Prometheus metrics endpoint</li>"
+            + "<li><a href=\"/history\">/history</a> - retained sample history, if enabled</li>"
             + "</body>"
             + "</html>";
 
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.exporter;
+
+import io.github.rtib.cmc.metrics.ExpositionFormat;
+import io.github.rtib.cmc.metrics.Label;
+import io.github.rtib.cmc.metrics.LabelListBuilder;
+import io.github.rtib.cmc.metrics.LabelRegistry;
+import io.github.rtib.cmc.metrics.Metric;
+import io.github.rtib.cmc.metrics.MetricException;
+import io.github.rtib.cmc.metrics.MetricType;
+import io.github.rtib.cmc.metrics.Repository;
+import io.github.rtib.cmc.metrics.SeriesHandle;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of rendered scrape responses. The exposition of a selection of
+ * metrics is rendered once and served to all scrapers until the publish epoch
+ * of the repository advances, i.e. a collection cycle completes, or the set
+ * of metrics is modified. Samples written within an epoch don't invalidate
+ * cached responses, they are exposed after the epoch. Concurrent scrapers missing
+ * the cache wait for a single rendering. Hits and misses are counted and may
+ * be exported, the exported counts are the ones of the time of rendering.
+ * Compressed bodies are cached as well, each encoding is compressed once,
+ * when first requested.
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public final class ScrapeCache {
+
+    private static final ScrapeCache instance = new ScrapeCache();
+    // distinct selections cached at most, all are dropped if exceeded
+    private static final int MAX_ENTRIES = 16;
+
+    private final Repository repo = Repository.getInstance();
+    private final Map<String,Entry> entries = new ConcurrentHashMap<>();
+    // reused by renderings, guarded by this
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile Metric metric;
+    private SeriesHandle hitHandle;
+    private SeriesHandle missHandle;
+
+    /**
+     * Rendered response of a selection and the epoch it reflects.
+     */
+    private static final class Entry {
+        private final long structure;
+        private final long epoch;
+        // bodies by encoding, guarded by this
+        private final byte[][] bodies = new byte[Encoding.values().length][];
+
+        private Entry(long structure, long epoch, byte[] body) {
+            this.structure = structure;
+            this.epoch = epoch;
+            this.bodies[Encoding.IDENTITY.ordinal()] = body;
+        }
+
+        private synchronized byte[] body(Encoding encoding) throws IOException {
+            byte[] body = bodies[encoding.ordinal()];
+            if (body == null) {
+                body = encoding.encode(bodies[Encoding.IDENTITY.ordinal()]);
+                bodies[encoding.ordinal()] = body;
+            }
+            return body;
+        }
+    }
+
+    private ScrapeCache() {
+    }
+
+    /**
+     * Get the singleton instance of this class.
+     * @return the ScrapeCache instance
+     */
+    public static ScrapeCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Get the exposition of the metrics selected by the query of a request.
+     * @param query raw query string of the request, may be null
+     * @return the rendered response body, not to be modified
+     * @throws IOException if rendering the metrics failed
+     */
+    byte[] get(String query) throws IOException {
+        return get(query, ExpositionFormat.TEXT, Encoding.IDENTITY);
+    }
+
+    /**
+     * Get the encoded exposition of the metrics selected by the query of a
+     * request.
+     * @param query raw query string of the request, may be null
+     * @param format exposition format of the body
+     * @param encoding content encoding of the body
+     * @return the encoded response body, not to be modified
+     * @throws IOException if rendering or encoding the metrics failed
+     */
+    byte[] get(String query, ExpositionFormat format, Encoding encoding) throws IOException {
+        String key = format.name() + '?' + (query == null ? "" : query);
+        Entry entry = lookup(key);
+        if (entry != null) {
+            hit();
+            return entry.body(encoding);
+        }
+        synchronized (this) {
+            // a concurrent scraper may have rendered meanwhile
+            entry = lookup(key);
+            if (entry != null) {
+                hit();
+                return entry.body(encoding);
+            }
+            miss();
+            // read before capturing, content is at least as recent
+            long structure = repo.getModifications();
+            long epoch = repo.getEpoch();
+            // counters too hot to be updated on each count are exported when rendered
+            LabelRegistry.getInstance().export();
+            buffer.reset();
+            repo.snapshot(select(query)).write(buffer, format);
+            entry = new Entry(structure, epoch, buffer.toByteArray());
+            if (entries.size() >= MAX_ENTRIES)
+                entries.clear();
+            entries.put(key, entry);
+        }
+        return entry.body(encoding);
+    }
+
+    /**
+     * Get the number of scrapes served from the cache.
+     * @return number of cache hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of scrapes rendered.
+     * @return number of cache misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Get the metric exporting cache hits and misses.
+     * @return the metric, or null if not created yet
+     */
+    public Metric getMetric() {
+        return metric;
+    }
+
+    /**
+     * Create the metric exporting cache hits and misses. The metric needs to
+     * be added to the Repository by the caller.
+     * @param commonLabels labels applied to the metric
+     * @return the metric
+     * @throws MetricException if the metric can't be created
+     */
+    public synchronized Metric createMetric(List<Label> commonLabels) throws MetricException {
+        Metric created = new Metric.Builder()
+                .withName("cql_metrics_collector_scrape_cache")
+                .withHelp("Scrapes served from cached responses or rendered, by result.")
+                .withType(MetricType.COUNTER)
+                .withEviction(false)
+                .withCommonLabels(commonLabels)
+                .build();
+        hitHandle = created.addInstance(new LabelListBuilder().addLabel("result", "hit").build());
+        missHandle = created.addInstance(new LabelListBuilder().addLabel("result", "miss").build());
+        metric = created;
+        created.setValue(hitHandle, hits.get());
+        created.setValue(missHandle, misses.get());
+        return created;
+    }
+
+    /**
+     * Get the cached entry, if rendered in the current epoch.
+     * @param key key of the selection and format
+     * @return the entry, or null if missing or outdated
+     */
+    private Entry lookup(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.structure != repo.getModifications() || entry.epoch != repo.getEpoch())
+            return null;
+        return entry;
+    }
+
+    private Collection<Metric> select(String query) {
+        Collection<Metric> selected = MetricSelection.select(repo, query);
+        return selected != null ? selected : repo.listMetrics();
+    }
+
+    private void hit() {
+        long count = hits.incrementAndGet();
+        Metric current = metric;
+        if (current != null)
+            current.setValue(hitHandle, count);
+    }
+
+    private void miss() {
+        long count = misses.incrementAndGet();
+        Metric current = metric;
+        if (current != null)
+            current.setValue(missHandle, count);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.metrics;
+
+/**
+ * Exposition formats metrics can be written in.
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public enum ExpositionFormat {
+    /**
+     * Prometheus text format 0.0.4
+     */
+    TEXT("text/plain; version=0.0.4; charset=utf-8"),
+
+    /**
+     * OpenMetrics text format 1.0.0
+     */
+    OPENMETRICS("application/openmetrics-text; version=1.0.0; charset=utf-8"),
+
+    /**
+     * Prometheus protobuf format, length delimited MetricFamily messages
+     */
+    PROTOBUF("application/vnd.google.protobuf; proto=io.prometheus.client.MetricFamily; encoding=delimited")
+    ;
+
+    private final String contentType;
+
+    ExpositionFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    /**
+     * Get the media type of the format.
+     * @return value of the Content-Type header
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Choose the format of a response by the Accept header of the request.
+     * The format accepted with the highest quality is chosen, protobuf is
+     * preferred over OpenMetrics and OpenMetrics over text on equal quality.
+     * @param accept value of the Accept header, may be null
+     * @return the format to respond with, text if none is accepted
+     */
+    public static ExpositionFormat negotiate(String accept) {
+        if (accept == null || accept.isBlank())
+            return TEXT;
+        double protobuf = 0;
+        double openMetrics = 0;
+        double text = 0;
+        for (String element : accept.split(",")) {
+            String[] parameters = element.split(";");
+            String range = parameters[0].trim().toLowerCase();
+            double q = 1;
+            boolean delimitedFamilies = false;
+            boolean delimited = true;
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].replace(" ", "");
+                if (parameter.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException ex) {
+                        q = 0;
+                    }
+                } else if (parameter.equals("proto=io.prometheus.client.MetricFamily")) {
+                    delimitedFamilies = true;
+                } else if (parameter.startsWith("encoding=") && !parameter.equals("encoding=delimited")) {
+                    delimited = false;
+                }
+            }
+            switch (range) {
+                case "application/vnd.google.protobuf":
+                    if (delimitedFamilies && delimited)
+                        protobuf = Math.max(protobuf, q);
+                    break;
+                case "application/openmetrics-text":
+                    openMetrics = Math.max(openMetrics, q);
+                    break;
+                case "text/plain":
+                case "text/*":
+                case "*/*":
+                    text = Math.max(text, q);
+                    break;
+                default:
+            }
+        }
+        if (protobuf > 0 && protobuf >= openMetrics && protobuf >= text)
+            return PROTOBUF;
+        return openMetrics > 0 && openMetrics >= text ? OPENMETRICS : TEXT;
+    }
+}
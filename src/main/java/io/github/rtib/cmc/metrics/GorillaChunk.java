@@ -0,0 +1,227 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Chunk of samples compressed as described by the Gorilla paper. Timestamps
+ * are encoded by the delta of their deltas, values by the XOR with the
+ * previous value. Regular samples of slowly changing values take about one to
+ * two bytes. Chunks are appended to only, not thread safe.
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ * @see <a href="https://www.vldb.org/pvldb/vol8/p1816-teller.pdf">Gorilla: A Fast, Scalable, In-Memory Time Series Database</a>
+ */
+final class GorillaChunk {
+
+    /**
+     * Consumer of decoded samples.
+     */
+    interface SampleConsumer {
+        /**
+         * Accept a sample.
+         * @param timestamp sample timestamp in milliseconds
+         * @param value sample value
+         */
+        void accept(long timestamp, double value);
+    }
+
+    private long[] words = new long[4];
+    private int bits = 0;
+    private int size = 0;
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private long lastDelta;
+    private long lastValue;
+    private int lastLeading = -1;
+    private int lastTrailing;
+
+    /**
+     * Append a sample. Timestamps need to be ascending.
+     * @param timestamp sample timestamp in milliseconds
+     * @param value sample value
+     */
+    void append(long timestamp, double value) {
+        long bitsOfValue = Double.doubleToRawLongBits(value);
+        if (size == 0) {
+            write(timestamp, 64);
+            write(bitsOfValue, 64);
+            firstTimestamp = timestamp;
+        } else {
+            long delta = timestamp - lastTimestamp;
+            writeDeltaOfDelta(delta - lastDelta);
+            lastDelta = delta;
+            writeXor(bitsOfValue ^ lastValue);
+        }
+        lastTimestamp = timestamp;
+        lastValue = bitsOfValue;
+        size++;
+    }
+
+    private void writeDeltaOfDelta(long dod) {
+        if (dod == 0) {
+            write(0b0, 1);
+        } else if (dod >= -63 && dod <= 64) {
+            write(0b10, 2);
+            write(dod, 7);
+        } else if (dod >= -255 && dod <= 256) {
+            write(0b110, 3);
+            write(dod, 9);
+        } else if (dod >= -2047 && dod <= 2048) {
+            write(0b1110, 4);
+            write(dod, 12);
+        } else {
+            write(0b1111, 4);
+            write(dod, 64);
+        }
+    }
+
+    private void writeXor(long xor) {
+        if (xor == 0) {
+            write(0b0, 1);
+            return;
+        }
+        int leading = Math.min(31, Long.numberOfLeadingZeros(xor));
+        int trailing = Long.numberOfTrailingZeros(xor);
+        if (lastLeading >= 0 && leading >= lastLeading && trailing >= lastTrailing) {
+            write(0b10, 2);
+            write(xor >>> lastTrailing, 64 - lastLeading - lastTrailing);
+            return;
+        }
+        int meaningful = 64 - leading - trailing;
+        write(0b11, 2);
+        write(leading, 5);
+        write(meaningful - 1, 6);
+        write(xor >>> trailing, meaningful);
+        lastLeading = leading;
+        lastTrailing = trailing;
+    }
+
+    private void write(long value, int length) {
+        if (bits + length > words.length * 64L)
+            words = Arrays.copyOf(words, words.length * 2);
+        for (int written = 0; written < length;) {
+            int offset = bits & 63;
+            int chunk = Math.min(64 - offset, length - written);
+            long part = (value >>> (length - written - chunk)) & mask(chunk);
+            words[bits >>> 6] |= part << (64 - offset - chunk);
+            bits += chunk;
+            written += chunk;
+        }
+    }
+
+    /**
+     * Decode all samples of the chunk.
+     * @param consumer consumer of the samples, in order of timestamps
+     */
+    void forEach(SampleConsumer consumer) {
+        Reader reader = new Reader();
+        long timestamp = 0;
+        long delta = 0;
+        long value = 0;
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0) {
+                timestamp = reader.read(64);
+                value = reader.read(64);
+            } else {
+                delta += reader.readDeltaOfDelta();
+                timestamp += delta;
+                if (reader.read(1) != 0) {
+                    if (reader.read(1) != 0) {
+                        leading = (int) reader.read(5);
+                        trailing = 64 - leading - ((int) reader.read(6) + 1);
+                    }
+                    value ^= reader.read(64 - leading - trailing) << trailing;
+                }
+            }
+            consumer.accept(timestamp, Double.longBitsToDouble(value));
+        }
+    }
+
+    /**
+     * Get the number of samples.
+     * @return number of samples
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Get the timestamp of the first sample.
+     * @return timestamp in milliseconds
+     */
+    long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    /**
+     * Get the timestamp of the last sample.
+     * @return timestamp in milliseconds
+     */
+    long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    /**
+     * Get the number of bytes the encoded samples take.
+     * @return size of the encoded samples in bytes
+     */
+    int sizeInBytes() {
+        return (bits + 7) / 8;
+    }
+
+    private static long mask(int length) {
+        return length == 64 ? -1L : (1L << length) - 1;
+    }
+
+    private final class Reader {
+        private int position = 0;
+
+        long read(int length) {
+            long result = 0;
+            for (int read = 0; read < length;) {
+                int offset = position & 63;
+                int chunk = Math.min(64 - offset, length - read);
+                long part = (words[position >>> 6] >>> (64 - offset - chunk)) & mask(chunk);
+                result = chunk == 64 ? part : (result << chunk) | part;
+                position += chunk;
+                read += chunk;
+            }
+            return result;
+        }
+
+        long readDeltaOfDelta() {
+            if (read(1) == 0)
+                return 0;
+            if (read(1) == 0)
+                return signed(read(7), 7);
+            if (read(1) == 0)
+                return signed(read(9), 9);
+            if (read(1) == 0)
+                return signed(read(12), 12);
+            return read(64);
+        }
+
+        private long signed(long value, int length) {
+            // ranges are asymmetric, e.g. -63..64 in 7 bits
+            long max = 1L << (length - 1);
+            return value > max ? value - (1L << length) : value;
+        }
+    }
+}
@@ -16,7 +16,6 @@
 package io.github.rtib.cmc.metrics;
 
 import java.util.Objects;
-import java.util.regex.Pattern;
 
 /**
  * Metric label.
@@ -25,16 +24,15 @@ import java.util.regex.Pattern;
  */
 public final class Label {
 
-    // Regex of label names allowed in Prometheus
-    private final Pattern ALLOWED_NAME = Pattern.compile("^[a-zA-Z_][a-zA-Z0-9_]*$");
-    private final Pattern RESERVED_NAME = Pattern.compile("^__.*");
-    
     private final String name;
     private final String value;
+    // encoded LabelPair field
+    private final byte[] protobuf;
     
     /**
      * Create a Label consisting of a name and value pair. Label names are validated
-     * in order to comply Prometheus rules.
+     * in order to comply Prometheus rules. Prefer the shared instances of
+     * {@link LabelRegistry#label(String, String)}.
      * 
      * @param name label name
      * @param value label value
@@ -42,13 +40,10 @@ public final class Label {
      * @see <a href="https://prometheus.io/docs/concepts/data_model/#metric-names-and-labels">Prometheus metric names and labels</a>
      */
     public Label(String name, String value) throws MetricException {
-        if (!ALLOWED_NAME.matcher(name).matches())
-            throw new MetricException("Label name must comply with Prometheus requirements. See https://prometheus.io/docs/concepts/data_model/#metric-names-and-labels");
-        if (RESERVED_NAME.matcher(name).matches())
-            throw new MetricException("Label name reseved for internal use only. See https://prometheus.io/docs/concepts/data_model/#metric-names-and-labels");
-        
+        LabelRegistry.getInstance().validateName(name);
         this.name = name;
         this.value = value;
+        this.protobuf = ProtobufWriter.encodeLabel(name, value != null ? value : "");
     }
     
     /**
@@ -67,6 +62,14 @@ public final class Label {
         return value;
     }
 
+    /**
+     * Get the label encoded as label field of a Prometheus protobuf Metric.
+     * @return encoded field, not to be modified
+     */
+    byte[] protobuf() {
+        return protobuf;
+    }
+
     /**
      * Output the label as name=value string for use into export format.
      * @return exportable label format
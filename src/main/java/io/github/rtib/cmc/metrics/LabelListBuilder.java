@@ -18,7 +18,7 @@ package io.github.rtib.cmc.metrics;
 import io.github.rtib.cmc.model.system_schema.TableName;
 import io.github.rtib.cmc.model.system_views.CacheName;
 import io.github.rtib.cmc.model.system_views.ThreadPoolName;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -106,7 +106,7 @@ public class LabelListBuilder {
         return labels;
     }
     
-    private final List<Label> list = new LinkedList<>();
+    private final List<Label> list = new ArrayList<>(4);
     
     /**
      * Create a LabelListBuilder.
@@ -115,14 +115,14 @@ public class LabelListBuilder {
     }
 
     /**
-     * Create and add a new label.
+     * Add the shared label of a name and value pair.
      * @param name label name
      * @param value label value
      * @return this builder instance
      * @throws MetricException if the label name doesn't comply rules
      */
     public LabelListBuilder addLabel(String name, String value) throws MetricException {
-        list.add(new Label(name, value));
+        list.add(LabelRegistry.getInstance().label(name, value));
         return this;
     }
 
@@ -147,10 +147,10 @@ public class LabelListBuilder {
     }
     
     /**
-     * Build the list of labels.
+     * Build the list of labels. Equal lists are shared.
      * @return list of labels
      */
     public List<Label> build() {
-        return List.copyOf(list);
+        return LabelRegistry.getInstance().intern(List.copyOf(list));
     }
 }
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.metrics;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Registry of labels. Label names are validated once, identical labels and
+ * label lists are interned, so the same keyspace, table and metric labels are
+ * shared by all metric instances instead of being allocated by each
+ * collector. Interned instances are referenced weakly, labels and lists no
+ * longer used by any metric instance are dropped from the registry. Interning
+ * hits and misses are counted and may be exported, the counts are set on the
+ * metric by {@link #export()}, e.g. when a scrape is rendered.
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public final class LabelRegistry {
+
+    private static final LabelRegistry instance = new LabelRegistry();
+
+    // Regex of label names allowed in Prometheus
+    private static final Pattern ALLOWED_NAME = Pattern.compile("^[a-zA-Z_][a-zA-Z0-9_]*$");
+    private static final Pattern RESERVED_NAME = Pattern.compile("^__.*");
+    // key of labels without value, as null keys are not supported
+    private static final Object NULL_VALUE = new Object();
+
+    private final Set<String> validNames = ConcurrentHashMap.newKeySet();
+    private final Map<String,Map<Object,Interned<Label>>> labels = new ConcurrentHashMap<>();
+    // keyed by the weak reference itself, equal to references to equal lists
+    private final Map<Interned<List<Label>>,Interned<List<Label>>> lists = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile Metric metric;
+    private SeriesHandle hitHandle;
+    private SeriesHandle missHandle;
+
+    private LabelRegistry() {
+    }
+
+    /**
+     * Get the singleton instance of this class.
+     * @return the LabelRegistry instance
+     */
+    public static LabelRegistry getInstance() {
+        return instance;
+    }
+
+    /**
+     * Validate a label name against Prometheus rules. Valid names are cached.
+     * @param name label name
+     * @throws MetricException if the label name is not valid
+     * @see <a href="https://prometheus.io/docs/concepts/data_model/#metric-names-and-labels">Prometheus metric names and labels</a>
+     */
+    public void validateName(String name) throws MetricException {
+        if (validNames.contains(name))
+            return;
+        if (!ALLOWED_NAME.matcher(name).matches())
+            throw new MetricException("Label name must comply with Prometheus requirements. See https://prometheus.io/docs/concepts/data_model/#metric-names-and-labels");
+        if (RESERVED_NAME.matcher(name).matches())
+            throw new MetricException("Label name reseved for internal use only. See https://prometheus.io/docs/concepts/data_model/#metric-names-and-labels");
+        validNames.add(name);
+    }
+
+    /**
+     * Get the interned label of a name and value pair.
+     * @param name label name
+     * @param value label value, may be null
+     * @return the shared Label instance
+     * @throws MetricException if the label name is not valid
+     */
+    public Label label(String name, String value) throws MetricException {
+        Map<Object,Interned<Label>> values = labels.get(name);
+        if (values == null) {
+            validateName(name);
+            values = labels.computeIfAbsent(name, n -> new ConcurrentHashMap<>());
+        }
+        Object key = value != null ? value : NULL_VALUE;
+        Interned<Label> reference = values.get(key);
+        Label label = reference != null ? reference.get() : null;
+        if (label != null) {
+            hits.increment();
+            return label;
+        }
+        misses.increment();
+        expunge();
+        Label created = new Label(name, value);
+        Interned<Label> entry = new Interned<>(created, values, key, collected);
+        while (true) {
+            Interned<Label> existing = values.putIfAbsent(key, entry);
+            if (existing == null)
+                return created;
+            label = existing.get();
+            if (label != null)
+                return label;
+            if (values.replace(key, existing, entry))
+                return created;
+        }
+    }
+
+    /**
+     * Get the interned instance of a label list.
+     * @param list immutable list of labels
+     * @return the shared list instance equal to the given one
+     */
+    public List<Label> intern(List<Label> list) {
+        Interned<List<Label>> entry = new Interned<>(list, lists, null, collected);
+        while (true) {
+            Interned<List<Label>> existing = lists.putIfAbsent(entry, entry);
+            if (existing == null) {
+                misses.increment();
+                expunge();
+                return list;
+            }
+            List<Label> interned = existing.get();
+            if (interned != null) {
+                hits.increment();
+                return interned;
+            }
+            lists.remove(existing, existing);
+        }
+    }
+
+    /**
+     * Get the number of labels and lists interned.
+     * @return number of entries, including the ones not yet expunged
+     */
+    int size() {
+        expunge();
+        int size = lists.size();
+        for (Map<Object,Interned<Label>> values : labels.values())
+            size += values.size();
+        return size;
+    }
+
+    /**
+     * Get the number of interning hits.
+     * @return number of labels and lists found interned
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of interning misses.
+     * @return number of labels and lists newly interned
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the metric exporting interning hits and misses.
+     * @return the metric, or null if not created yet
+     */
+    public Metric getMetric() {
+        return metric;
+    }
+
+    /**
+     * Create the metric exporting interning hits and misses. The metric needs
+     * to be added to the Repository by the caller.
+     * @param commonLabels labels applied to the metric
+     * @return the metric
+     * @throws MetricException if the metric can't be created
+     */
+    public synchronized Metric createMetric(List<Label> commonLabels) throws MetricException {
+        Metric created = new Metric.Builder()
+                .withName("cql_metrics_collector_label_interning")
+                .withHelp("Labels and label lists requested from the label registry, by result.")
+                .withType(MetricType.COUNTER)
+                .withEviction(false)
+                .withCommonLabels(commonLabels)
+                .build();
+        hitHandle = created.addInstance(new LabelListBuilder().addLabel("result", "hit").build());
+        missHandle = created.addInstance(new LabelListBuilder().addLabel("result", "miss").build());
+        metric = created;
+        export();
+        return created;
+    }
+
+    /**
+     * Set the current counts of hits and misses on the metric, if created.
+     */
+    public synchronized void export() {
+        Metric current = metric;
+        if (current == null)
+            return;
+        current.setValue(hitHandle, hits.sum());
+        current.setValue(missHandle, misses.sum());
+    }
+
+    /**
+     * Drop the entries of interned instances collected meanwhile.
+     */
+    private void expunge() {
+        Reference<?> reference;
+        while ((reference = collected.poll()) != null)
+            ((Interned<?>) reference).expunge();
+    }
+
+    /**
+     * Weak reference to an interned instance. References are equal if their
+     * instances are, a cleared reference is equal to itself only.
+     */
+    private static final class Interned<T> extends WeakReference<T> {
+        private final Map<?,?> map;
+        private final Object key;
+        private final int hash;
+
+        /**
+         * Create the reference.
+         * @param referent interned instance
+         * @param map map the reference is kept in
+         * @param key key of the reference in the map, null if keyed by itself
+         * @param queue queue of references cleared
+         */
+        Interned(T referent, Map<?,?> map, Object key, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.map = map;
+            this.key = key != null ? key : this;
+            this.hash = referent.hashCode();
+        }
+
+        void expunge() {
+            map.remove(key, this);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this)
+                return true;
+            if (!(obj instanceof Interned))
+                return false;
+            Object referent = get();
+            return referent != null && referent.equals(((Interned<?>) obj).get());
+        }
+    }
+}
@@ -18,14 +18,12 @@ package io.github.rtib.cmc.metrics;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
@@ -45,8 +43,13 @@ public class Metric {
     private final String help;
     private final MetricType type;
     private final List<Label> commonLabels;
-    private final Set<List<Label>> instances = new HashSet<>();
-    private final Map<List<Label>, MetricValue> values = new HashMap<>();
+    private final boolean evictable;
+    private final Metric summaryCount;
+    private final SeriesStore series;
+    private final byte[] family;
+    private final byte[] openMetricsHeader;
+    private final byte[] protobufHeader;
+    private final byte[] protobufLabels;
     
     /**
      * Private constructor of metric.
@@ -55,17 +58,35 @@ public class Metric {
      * @param help string describing the metric
      * @param type one of MetricTypes items
      * @param commonLabels list of labels all metric instances are applied to
+     * @param evictable whether stale instances are evicted
+     * @param offHeap whether values are held off heap
+     * @param history retention of the sample history
+     * @param summaryCount metric counting the observations of a summary, or null
      */
     private Metric(
                 String name,
                 String help,
                 MetricType type,
-                List<Label> commonLabels
+                List<Label> commonLabels,
+                boolean evictable,
+                boolean offHeap,
+                Duration history,
+                Metric summaryCount
     ) {
         this.name = name;
         this.help = help;
         this.type = type;
         this.commonLabels = commonLabels;
+        this.evictable = evictable;
+        this.summaryCount = summaryCount;
+        this.series = new SeriesStore(this::renderPrefix, offHeap, history);
+        // OpenMetrics counter families are named without the _total suffix of their samples
+        this.family = (type == MetricType.COUNTER && name.endsWith("_total")
+                ? name.substring(0, name.length() - "_total".length())
+                : name).getBytes(encoding);
+        this.openMetricsHeader = renderOpenMetricsHeader();
+        this.protobufHeader = ProtobufWriter.encodeHeader(name, help, type);
+        this.protobufLabels = ProtobufWriter.encodeLabels(commonLabels);
     }
     
     /**
@@ -73,9 +94,10 @@ public class Metric {
      * Each instance has a distinct list of labels.
      * 
      * @param labels distinguished list of labels applied to this instance
+     * @return handle to set values of the instance by
      */
-    public synchronized void addInstance(List<Label> labels) {
-        this.instances.add(labels);
+    public SeriesHandle addInstance(List<Label> labels) {
+        return series.add(labels);
     }
 
     /**
@@ -84,22 +106,132 @@ public class Metric {
      * 
      * @param labels distinguished labels of the instance
      */
-    public synchronized void removeInstance(List<Label> labels) {
-        this.values.remove(labels);
-        this.instances.remove(labels);
+    public void removeInstance(List<Label> labels) {
+        series.remove(labels);
     }
 
     /**
-     * Set the value of a particular metric instance.
+     * Cease the registration of a metric instance by its handle.
+     * 
+     * @param handle handle returned by addInstance
+     */
+    public void removeInstance(SeriesHandle handle) {
+        series.remove(handle.labels);
+    }
+
+    /**
+     * Evict instances not updated since a point in time, if the metric is
+     * evictable. Instances are revived by setting their value.
+     * 
+     * @param before time in milliseconds instances are stale if not updated since
+     * @return number of instances evicted
+     */
+    public int evictStale(long before) {
+        return evictable ? series.evict(before) : 0;
+    }
+
+    /**
+     * Set the value of a particular metric instance. Values of instances not
+     * registered are dropped. Setting a value doesn't allocate, it holds the
+     * sequence lock of the series only for the time of writing the sample.
      * 
      * @param labels list of labels to identify the instance
      * @param value actual metric value
      */
-    public synchronized void setValue(List<Label> labels, double value) {
-        if (instances.contains(labels))
-            this.values.put(labels, new MetricValue(value));
+    public void setValue(List<Label> labels, double value) {
+        SeriesHandle handle = series.handle(labels);
+        if (handle != null)
+            series.set(handle, value, System.currentTimeMillis());
+    }
+
+    /**
+     * Set the value of a metric instance by its handle. This is the preferred
+     * way of recording values, the instance is resolved in O(1) without
+     * hashing its labels.
+     * 
+     * @param handle handle returned by addInstance
+     * @param value actual metric value
+     */
+    public void setValue(SeriesHandle handle, double value) {
+        series.set(handle, value, System.currentTimeMillis());
     }
     
+    /**
+     * Get the sample history of an instance.
+     * 
+     * @param handle handle returned by addInstance
+     * @return history of the instance, or null if no history is kept
+     */
+    public SeriesHistory getHistory(SeriesHandle handle) {
+        return series.history(handle);
+    }
+
+    /**
+     * Whether a sample history of the instances is kept.
+     * @return true if a history is kept
+     */
+    public boolean hasHistory() {
+        return series.hasHistory();
+    }
+
+    /**
+     * Write the retained history of all instances, sample by sample in the
+     * format of the instance lines, e.g. to backfill gaps or for debugging.
+     * 
+     * @param out output to write to
+     * @param from first timestamp in milliseconds, inclusive
+     * @param to last timestamp in milliseconds, inclusive
+     * @throws IOException if writing to the output failed
+     */
+    public void writeHistory(OutputStream out, long from, long to) throws IOException {
+        StringBuilder sb = new StringBuilder(64);
+        try {
+            series.forEachHistory((prefix, history) -> history.forEach(from, to, (timestamp, value) -> {
+                sb.setLength(0);
+                sb.append(' ')
+                    .append(value)
+                    .append(' ')
+                    .append(timestamp)
+                    .append('\n');
+                try {
+                    out.write(prefix);
+                    out.write(sb.toString().getBytes(encoding));
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Write the rate of increase of each series over its retained samples
+     * within a time range. Series with less than two samples in the range
+     * are skipped.
+     * @param out stream to write to
+     * @param from start of the range in milliseconds, inclusive
+     * @param to end of the range in milliseconds, inclusive
+     * @throws IOException if writing fails
+     */
+    public void writeRates(OutputStream out, long from, long to) throws IOException {
+        try {
+            series.forEachHistory((prefix, history) -> {
+                double rate = history.rate(from, to);
+                if (Double.isNaN(rate))
+                    return;
+                try {
+                    out.write(prefix);
+                    out.write((" " + rate + "\n").getBytes(encoding));
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
     /**
      * Generate the help string of the export.
      * 
@@ -134,11 +266,15 @@ public class Metric {
      * @return type string
      */
     public String getType() {
+        return getType(type);
+    }
+
+    private String getType(MetricType exported) {
         return new StringBuilder()
                 .append("# TYPE ")
                 .append(name)
                 .append(' ')
-                .append(type)
+                .append(exported)
                 .append('\n')
                 .toString();
     }
@@ -148,8 +284,18 @@ public class Metric {
      * @param out stream to write to
      */
     public void writeType(OutputStream out) {
+        writeType(out, type);
+    }
+
+    /**
+     * Write the type string to an output with another type than the one of
+     * the metric, e.g. of rates derived from the samples of a counter.
+     * @param out stream to write to
+     * @param exported type to be written
+     */
+    public void writeType(OutputStream out, MetricType exported) {
         try {
-            out.write(getType().getBytes(encoding));
+            out.write(getType(exported).getBytes(encoding));
         } catch (IOException ex) {
             LOG.atTrace().log(null, ex);
             throw new RuntimeException(ex);
@@ -172,29 +318,134 @@ public class Metric {
      * @param out output to write to
      */
     public void writeInstances(OutputStream out) {
-        StringBuilder sb;
-        for (Map.Entry<List<Label>, MetricValue> value : values.entrySet()) {
-            sb = new StringBuilder();
-            sb.append(name)
-                    .append('{');
-            List<Label> allLabels = new ArrayList<>();
-            allLabels.addAll(commonLabels);
-            allLabels.addAll(value.getKey());
-            sb.append(allLabels
-                    .stream()
-                    .map(label -> label.toString())
-                    .collect(Collectors.joining(",")))
-                .append('}')
+        try {
+            snapshot().writeInstances(out);
+        } catch (IOException ex) {
+            LOG.atTrace().log("Failed to write {}", name, ex);
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Capture the samples of all instances. Prefer the snapshot of the
+     * Repository, which is consistent across metrics.
+     * @return snapshot of the metric
+     */
+    public MetricSnapshot snapshot() {
+        return new MetricSnapshot(this, series);
+    }
+
+    /**
+     * Whether the metric, or its summary count, has been modified since the
+     * flag was cleared.
+     * @return true if modified
+     */
+    boolean isModified() {
+        return series.isModified() || (summaryCount != null && summaryCount.isModified());
+    }
+
+    /**
+     * Clear the modified flag of the metric, before capturing it. The flag of
+     * the summary count is cleared by capturing the count metric itself.
+     */
+    void clearModified() {
+        series.clearModified();
+    }
+
+    /**
+     * Flag the metric modified, as capturing it failed.
+     */
+    void setModified() {
+        series.setModified();
+    }
+
+    /**
+     * Render the exposition prefix of a series, consisting of the metric name,
+     * the common labels and the labels of the series.
+     * @param labels labels of the series
+     * @return UTF-8 encoded prefix
+     */
+    private byte[] renderPrefix(List<Label> labels) {
+        StringBuilder sb = new StringBuilder(name).append('{');
+        List<Label> allLabels = new ArrayList<>(commonLabels.size() + labels.size());
+        allLabels.addAll(commonLabels);
+        allLabels.addAll(labels);
+        sb.append(allLabels
+                .stream()
+                .map(label -> label.toString())
+                .collect(Collectors.joining(",")))
+            .append('}');
+        return sb.toString().getBytes(encoding);
+    }
+
+    /**
+     * Render the metadata lines of the OpenMetrics family.
+     * @return UTF-8 encoded HELP and TYPE lines
+     */
+    private byte[] renderOpenMetricsHeader() {
+        String familyName = new String(family, encoding);
+        StringBuilder sb = new StringBuilder();
+        if (help != null) {
+            sb.append("# HELP ")
+                .append(familyName)
                 .append(' ')
-                .append(value.getValue())
+                .append(help.replace("\\", "\\\\").replace("\n", "\\n").replace("\"", "\\\""))
                 .append('\n');
-            try {
-                out.write(sb.toString().getBytes(encoding));
-            } catch (IOException ex) {
-                LOG.atTrace().log("Failed to write {}", value, ex);
-                throw new RuntimeException(ex);
-            }
         }
+        sb.append("# TYPE ")
+            .append(familyName)
+            .append(' ')
+            .append(type == MetricType.UNTYPED ? "unknown" : type.toString())
+            .append('\n');
+        return sb.toString().getBytes(encoding);
+    }
+
+    /**
+     * Get the type of the metric.
+     * @return metric type
+     */
+    MetricType getMetricType() {
+        return type;
+    }
+
+    /**
+     * Get the name of the OpenMetrics family.
+     * @return UTF-8 encoded family name
+     */
+    byte[] getFamily() {
+        return family;
+    }
+
+    /**
+     * Get the HELP and TYPE lines of the OpenMetrics family.
+     * @return UTF-8 encoded metadata lines
+     */
+    byte[] getOpenMetricsHeader() {
+        return openMetricsHeader;
+    }
+
+    /**
+     * Get the name, help and type fields of the protobuf MetricFamily.
+     * @return encoded fields
+     */
+    byte[] getProtobufHeader() {
+        return protobufHeader;
+    }
+
+    /**
+     * Get the common labels as label fields of protobuf Metrics.
+     * @return encoded fields
+     */
+    byte[] getProtobufLabels() {
+        return protobufLabels;
+    }
+
+    /**
+     * Get the metric counting the observations of this summary.
+     * @return the count metric, or null if there is none
+     */
+    Metric getSummaryCount() {
+        return summaryCount;
     }
 
     /**
@@ -227,12 +478,18 @@ public class Metric {
      */
     public static class Builder {
 
-        private final Pattern ALLOWED_NAME = Pattern.compile("^[a-zA-Z_:][a-zA-Z0-9_:]*$");
+        private static final Pattern ALLOWED_NAME = Pattern.compile("^[a-zA-Z_:][a-zA-Z0-9_:]*$");
+        private static volatile boolean offHeapDefault = false;
+        private static volatile Duration historyDefault = Duration.ZERO;
         
         private String name;
         private String help;
         private MetricType type = MetricType.UNTYPED;
         private final List<Label> commonLabels = new ArrayList<>();
+        private boolean evictable = true;
+        private boolean offHeap = offHeapDefault;
+        private Duration history = historyDefault;
+        private Metric summaryCount;
 
         /**
          * Create a pristine Builder instance.
@@ -249,7 +506,7 @@ public class Metric {
         public Metric build() throws MetricException {
             if (name.isBlank())
                 throw new MetricException("Metric name cannot be empty.");
-            return new Metric(name, help, type, List.copyOf(commonLabels));
+            return new Metric(name, help, type, LabelRegistry.getInstance().intern(List.copyOf(commonLabels)), evictable, offHeap, history, summaryCount);
         }
         
         /**
@@ -291,6 +548,78 @@ public class Metric {
             return this;
         }
         
+        /**
+         * Set whether metrics built are holding their values off heap by
+         * default. Applies to builders created afterwards.
+         * 
+         * @param offHeap true to hold values off heap by default
+         */
+        public static void setOffHeapDefault(boolean offHeap) {
+            offHeapDefault = offHeap;
+        }
+
+        /**
+         * Set whether values and timestamps of the instances are held off
+         * heap in direct buffers. This is optional, default is set by
+         * setOffHeapDefault.
+         * 
+         * @param offHeap true to hold values off heap
+         * @return this builder instance
+         */
+        public Builder withOffHeap(final boolean offHeap) {
+            this.offHeap = offHeap;
+            return this;
+        }
+        
+        /**
+         * Set the sample history retained by metrics built by default.
+         * Applies to builders created afterwards.
+         * 
+         * @param history retention of the history, zero to keep the last sample only
+         */
+        public static void setHistoryDefault(Duration history) {
+            historyDefault = history;
+        }
+
+        /**
+         * Set the retention of the compressed sample history of each
+         * instance. This is optional, default is set by setHistoryDefault.
+         * 
+         * @param history retention of the history, zero to keep the last sample only
+         * @return this builder instance
+         */
+        public Builder withHistory(final Duration history) {
+            this.history = history;
+            return this;
+        }
+        
+        /**
+         * Set whether instances not updated for the staleness period are
+         * evicted. This is optional, default is true. Metrics updated on
+         * change only should not be evictable.
+         * 
+         * @param evictable false to keep stale instances
+         * @return this builder instance
+         */
+        public Builder withEviction(final boolean evictable) {
+            this.evictable = evictable;
+            return this;
+        }
+        
+        /**
+         * Set the metric counting the observations of a summary. Its series
+         * need to have the labels of the summary series without the quantile.
+         * In OpenMetrics, they are exposed as the _count samples of the
+         * summary. This is optional, the text format is not affected.
+         * 
+         * @param summaryCount the count metric
+         * @return this builder instance
+         */
+        public Builder withSummaryCount(final Metric summaryCount) {
+            this.summaryCount = summaryCount;
+            return this;
+        }
+        
         /**
          * Add a Label to the list of common labels. This instantiates a Label.
          * 
@@ -300,7 +629,7 @@ public class Metric {
          * @throws MetricException if the label name doesn't comply with Prometheus rules
          */
         public Builder withCommonLabel(String name, String value) throws MetricException {
-            this.commonLabels.add(new Label(name, value));
+            this.commonLabels.add(LabelRegistry.getInstance().label(name, value));
             return this;
         }
         
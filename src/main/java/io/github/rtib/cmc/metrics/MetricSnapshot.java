@@ -0,0 +1,167 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable snapshot of the samples of a metric, as captured by a scrape.
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public final class MetricSnapshot {
+    private static final byte[] NO_SUFFIX = new byte[0];
+    private static final byte[] TOTAL_SUFFIX = "_total".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] COUNT_SUFFIX = "_count".getBytes(StandardCharsets.UTF_8);
+    private final Metric metric;
+    private final MetricSnapshot summaryCount;
+    private List<Label>[] labels;
+    private byte[][] prefixes;
+    private double[] values;
+    private long[] timestamps;
+    private int size = 0;
+
+    /**
+     * Capture the samples of a metric.
+     * @param metric the metric
+     * @param series series store of the metric
+     */
+    @SuppressWarnings("unchecked")
+    MetricSnapshot(Metric metric, SeriesStore series) {
+        this.metric = metric;
+        int capacity = Math.max(1, series.size());
+        this.labels = (List<Label>[]) new List<?>[capacity];
+        this.prefixes = new byte[capacity][];
+        this.values = new double[capacity];
+        this.timestamps = new long[capacity];
+        series.forEachPrefixed(this::add);
+        Metric count = metric.getSummaryCount();
+        this.summaryCount = count != null ? count.snapshot() : null;
+    }
+
+    private void add(List<Label> labels, byte[] prefix, double value, long timestamp) {
+        if (size == values.length) {
+            this.labels = Arrays.copyOf(this.labels, size * 2);
+            prefixes = Arrays.copyOf(prefixes, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+            timestamps = Arrays.copyOf(timestamps, size * 2);
+        }
+        this.labels[size] = labels;
+        prefixes[size] = prefix;
+        values[size] = value;
+        timestamps[size] = timestamp;
+        size++;
+    }
+
+    /**
+     * Get the metric captured.
+     * @return the metric
+     */
+    public Metric getMetric() {
+        return metric;
+    }
+
+    /**
+     * Get the number of samples captured.
+     * @return number of samples
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Write the instance lines of the snapshot to a given output stream.
+     * @param out output to write to
+     * @throws IOException if writing to the output failed
+     */
+    public void writeInstances(OutputStream out) throws IOException {
+        SampleWriter writer = new SampleWriter(out);
+        for (int i = 0; i < size; i++)
+            writer.writeText(prefixes[i], values[i], timestamps[i]);
+    }
+
+    /**
+     * Write the whole content of the snapshot in Prometheus text format.
+     * @param out stream to write to
+     * @throws IOException if writing to the output failed
+     */
+    public void write(OutputStream out) throws IOException {
+        write(out, ExpositionFormat.TEXT);
+    }
+
+    /**
+     * Write the whole content of the snapshot.
+     * @param out stream to write to
+     * @param format exposition format to write
+     * @throws IOException if writing to the output failed
+     */
+    public void write(OutputStream out, ExpositionFormat format) throws IOException {
+        switch (format) {
+            case OPENMETRICS:
+                writeOpenMetrics(out);
+                break;
+            case PROTOBUF:
+                writeProtobuf(out);
+                break;
+            default:
+                metric.writeHelp(out);
+                metric.writeType(out);
+                writeInstances(out);
+        }
+    }
+
+    /**
+     * Write the family as length delimited protobuf MetricFamily message.
+     * Families without samples are omitted.
+     * @param out stream to write to
+     * @throws IOException if writing to the output failed
+     */
+    private void writeProtobuf(OutputStream out) throws IOException {
+        if (size == 0)
+            return;
+        new ProtobufWriter(out).writeFamily(
+                metric.getProtobufHeader(),
+                metric.getProtobufLabels(),
+                metric.getMetricType(),
+                labels, values, timestamps, size);
+    }
+
+    /**
+     * Write the family in OpenMetrics format. Counter samples are suffixed by
+     * _total, summaries are followed by the samples of their count metric.
+     * @param out stream to write to
+     * @throws IOException if writing to the output failed
+     */
+    private void writeOpenMetrics(OutputStream out) throws IOException {
+        SampleWriter writer = new SampleWriter(out);
+        byte[] family = metric.getFamily();
+        byte[] suffix = metric.getMetricType() == MetricType.COUNTER ? TOTAL_SUFFIX : NO_SUFFIX;
+        out.write(metric.getOpenMetricsHeader());
+        writeOpenMetrics(writer, family, suffix);
+        if (summaryCount != null)
+            summaryCount.writeOpenMetrics(writer, family, COUNT_SUFFIX);
+    }
+
+    private void writeOpenMetrics(SampleWriter writer, byte[] family, byte[] suffix) throws IOException {
+        int labels = metric.getName().length();
+        for (int i = 0; i < size; i++)
+            writer.writeOpenMetrics(family, suffix, prefixes[i], labels, values[i], timestamps[i]);
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writer of the Prometheus protobuf exposition, MetricFamily messages of
+ * io.prometheus.client each preceded by its length. Messages are encoded
+ * directly to the output, the sizes of nested messages are calculated
+ * upfront. Labels are encoded once and kept with the shared Label instances.
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ * @see <a href="https://github.com/prometheus/client_model/blob/master/io/prometheus/client/metrics.proto">metrics.proto</a>
+ */
+final class ProtobufWriter {
+    // wire types
+    private static final int VARINT = 0;
+    private static final int FIXED64 = 1;
+    private static final int LENGTH_DELIMITED = 2;
+
+    // fields of MetricFamily
+    private static final int FAMILY_NAME = 1;
+    private static final int FAMILY_HELP = 2;
+    private static final int FAMILY_TYPE = 3;
+    private static final int FAMILY_METRIC = 4;
+
+    // fields of Metric, LabelPair and the value messages
+    private static final int METRIC_LABEL = 1;
+    private static final int METRIC_GAUGE = 2;
+    private static final int METRIC_COUNTER = 3;
+    private static final int METRIC_UNTYPED = 5;
+    private static final int METRIC_TIMESTAMP = 6;
+    private static final int LABEL_NAME = 1;
+    private static final int LABEL_VALUE = 2;
+    private static final int VALUE = 1;
+
+    // values of MetricType
+    private static final int TYPE_COUNTER = 0;
+    private static final int TYPE_GAUGE = 1;
+    private static final int TYPE_UNTYPED = 3;
+
+    // value field of a Metric: tag, length, tag and the double
+    private static final int VALUE_SIZE = 1 + 1 + 1 + Double.BYTES;
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[16];
+
+    /**
+     * Create a writer.
+     * @param out stream to write to
+     */
+    ProtobufWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Write a MetricFamily message of samples.
+     * @param header encoded name, help and type fields of the family
+     * @param commonLabels encoded label fields common to all samples
+     * @param type type of the metric
+     * @param labels labels of the samples
+     * @param values values of the samples
+     * @param timestamps timestamps of the samples in milliseconds
+     * @param size number of samples
+     * @throws IOException if writing to the output failed
+     */
+    void writeFamily(byte[] header, byte[] commonLabels, MetricType type,
+            List<Label>[] labels, double[] values, long[] timestamps, int size) throws IOException {
+        long familySize = header.length;
+        for (int i = 0; i < size; i++)
+            familySize += lengthDelimitedSize(metricSize(commonLabels, labels[i], timestamps[i]));
+        writeVarint(familySize);
+        out.write(header);
+        int valueField = valueField(type);
+        for (int i = 0; i < size; i++) {
+            writeTag(FAMILY_METRIC, LENGTH_DELIMITED);
+            writeVarint(metricSize(commonLabels, labels[i], timestamps[i]));
+            out.write(commonLabels);
+            for (Label label : labels[i])
+                out.write(label.protobuf());
+            writeTag(valueField, LENGTH_DELIMITED);
+            writeVarint(1 + Double.BYTES);
+            writeTag(VALUE, FIXED64);
+            writeFixed64(Double.doubleToRawLongBits(values[i]));
+            writeTag(METRIC_TIMESTAMP, VARINT);
+            writeVarint(timestamps[i]);
+        }
+    }
+
+    /**
+     * Encode the name, help and type fields of a MetricFamily. Histograms
+     * and summaries are encoded as untyped samples, as their quantile series
+     * are samples of their own.
+     * @param name name of the metric
+     * @param help help text, may be null
+     * @param type type of the metric
+     * @return encoded fields
+     */
+    static byte[] encodeHeader(String name, String help, MetricType type) {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        encodeString(encoded, FAMILY_NAME, name);
+        if (help != null)
+            encodeString(encoded, FAMILY_HELP, help);
+        encoded.write(tag(FAMILY_TYPE, VARINT));
+        encoded.write(familyType(type));
+        return encoded.toByteArray();
+    }
+
+    /**
+     * Encode labels as label fields of a Metric.
+     * @param labels labels to encode
+     * @return encoded fields
+     */
+    static byte[] encodeLabels(List<Label> labels) {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        for (Label label : labels)
+            encoded.writeBytes(label.protobuf());
+        return encoded.toByteArray();
+    }
+
+    /**
+     * Encode a label as label field of a Metric.
+     * @param name label name
+     * @param value label value
+     * @return encoded LabelPair field
+     */
+    static byte[] encodeLabel(String name, String value) {
+        ByteArrayOutputStream pair = new ByteArrayOutputStream();
+        encodeString(pair, LABEL_NAME, name);
+        encodeString(pair, LABEL_VALUE, value);
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream(pair.size() + 3);
+        encoded.write(tag(METRIC_LABEL, LENGTH_DELIMITED));
+        encodeVarint(encoded, pair.size());
+        encoded.writeBytes(pair.toByteArray());
+        return encoded.toByteArray();
+    }
+
+    private static long metricSize(byte[] commonLabels, List<Label> labels, long timestamp) {
+        long size = commonLabels.length + VALUE_SIZE + 1 + varintSize(timestamp);
+        for (Label label : labels)
+            size += label.protobuf().length;
+        return size;
+    }
+
+    private static long lengthDelimitedSize(long size) {
+        return 1 + varintSize(size) + size;
+    }
+
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int familyType(MetricType type) {
+        switch (type) {
+            case COUNTER:
+                return TYPE_COUNTER;
+            case GAUGE:
+                return TYPE_GAUGE;
+            default:
+                return TYPE_UNTYPED;
+        }
+    }
+
+    private static int valueField(MetricType type) {
+        switch (type) {
+            case COUNTER:
+                return METRIC_COUNTER;
+            case GAUGE:
+                return METRIC_GAUGE;
+            default:
+                return METRIC_UNTYPED;
+        }
+    }
+
+    private static int tag(int field, int wireType) {
+        return field << 3 | wireType;
+    }
+
+    private static void encodeString(ByteArrayOutputStream encoded, int field, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        encoded.write(tag(field, LENGTH_DELIMITED));
+        encodeVarint(encoded, bytes.length);
+        encoded.writeBytes(bytes);
+    }
+
+    private static void encodeVarint(ByteArrayOutputStream encoded, long value) {
+        while ((value & ~0x7FL) != 0) {
+            encoded.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        encoded.write((int) value);
+    }
+
+    private void writeTag(int field, int wireType) throws IOException {
+        out.write(tag(field, wireType));
+    }
+
+    private void writeVarint(long value) throws IOException {
+        int length = 0;
+        while ((value & ~0x7FL) != 0) {
+            buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[length++] = (byte) value;
+        out.write(buffer, 0, length);
+    }
+
+    private void writeFixed64(long value) throws IOException {
+        for (int i = 0; i < Long.BYTES; i++)
+            buffer[i] = (byte) (value >>> (8 * i));
+        out.write(buffer, 0, Long.BYTES);
+    }
+}
@@ -15,18 +15,37 @@
  */
 package io.github.rtib.cmc.metrics;
 
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Repository of active metrics. The repository acts as a List of active metrics
- * which is always returned in the same order, however, the order may change if
- * its elements are changed. Each Metric can only be listed once, while metrics
- * are distinguished by their name. A single Metric may carry multiple values.
+ * which is always returned in order of their names. Each Metric can only be
+ * listed once, while metrics are distinguished by their name. A single Metric
+ * may carry multiple values. Metrics are indexed by name, registration and
+ * lookup are O(log n) without copying, and ranges of names are selected
+ * without iterating all metrics.
+ * <p>
+ * Sample batches are published without a lock, only counting the batches
+ * started and finished. When the publish epoch advances, the snapshots of the
+ * metrics modified since the last epoch are recaptured and validated against
+ * the counters, a capture overlapped by a batch is retried. The snapshots are
+ * swapped in along with the snapshots of unmodified metrics. If capturing
+ * keeps colliding, the snapshots of the last epoch are kept and the metrics
+ * are recaptured on the next epoch. Neither publishers nor readers are ever
+ * held off, readers get the snapshots of the last epoch.
  * 
  * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
  */
@@ -34,9 +53,16 @@ public final class Repository {
     
     private static final Repository instance = new Repository();
     private static final Logger LOG = LoggerFactory.getLogger(Repository.class);
+    private static final int CAPTURE_ATTEMPTS = 8;
 
-    private final List<Metric> metrics = new CopyOnWriteArrayList<>();
-    private final Set<String> names = ConcurrentHashMap.newKeySet();
+    private final NavigableMap<String,Metric> metrics = new ConcurrentSkipListMap<>();
+    // batches started and finished, equal while none is being published
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong finished = new AtomicLong();
+    private final AtomicLong modifications = new AtomicLong();
+    private final AtomicLong epoch = new AtomicLong();
+    // snapshots of the last epoch, replaced as a whole
+    private volatile Map<Metric,MetricSnapshot> published = Map.of();
     
     private Repository() {
     }
@@ -54,24 +80,25 @@ public final class Repository {
      * @param metric Metric to be added
      */
     public void add(final Metric metric) {
-        if (!names.add(metric.getName())) {
+        if (metrics.putIfAbsent(metric.getName(), metric) != null) {
             var ex = new IllegalStateException("Metric " + metric.getName() + " already active.");
             LOG.atError().log(null, ex);
             throw ex;
         }
+        modifications.incrementAndGet();
         
-        this.metrics.add(metric);
         LOG.atInfo().log("Metric {} registered.", metric.getName());
     }
     
     /**
-     * Remote a Metric from the repository.
+     * Remote a Metric from the repository. A metric of the same name
+     * registered meanwhile is kept.
      * @param metric the Metric to be removed.
      */
     public void remove(final Metric metric) {
         LOG.atInfo().log("Removing metric {}", metric.getName());
-        metrics.remove(metric);
-        names.remove(metric.getName());
+        if (metrics.remove(metric.getName(), metric))
+            modifications.incrementAndGet();
     }
     
     /**
@@ -80,7 +107,7 @@ public final class Repository {
     public void clear() {
         LOG.atInfo().log("Flushing.");
         metrics.clear();
-        names.clear();
+        modifications.incrementAndGet();
     }
     
     /**
@@ -88,6 +115,181 @@ public final class Repository {
      * @return list of metrics
      */
     public List<Metric> listMetrics() {
-        return List.copyOf(metrics);
+        return List.copyOf(metrics.values());
+    }
+
+    /**
+     * Get the number of changes of the set of metrics. The samples of the
+     * metrics are not accounted, see {@link #getEpoch()}.
+     * @return number of metrics added and removed
+     */
+    public long getModifications() {
+        return modifications.get();
+    }
+
+    /**
+     * Advance the publish epoch, as a collection cycle has completed. Samples
+     * and series published since the last epoch are captured to be exposed.
+     * @return the new epoch
+     */
+    public long advanceEpoch() {
+        synchronized (epoch) {
+            Map<Metric,MetricSnapshot> previous = published;
+            List<Metric> current = listMetrics();
+            List<Metric> modified = new ArrayList<>();
+            for (Metric metric : current) {
+                if (metric.isModified() || !previous.containsKey(metric))
+                    modified.add(metric);
+            }
+            Map<Metric,MetricSnapshot> next = new IdentityHashMap<>(current.size());
+            for (Metric metric : current)
+                next.put(metric, previous.get(metric));
+            List<MetricSnapshot> captured = capture(modified);
+            if (captured == null)
+                LOG.debug("Capture collided with publishing {} times, keeping the snapshots of the last epoch.", CAPTURE_ATTEMPTS);
+            else
+                for (MetricSnapshot snapshot : captured)
+                    next.put(snapshot.getMetric(), snapshot);
+            published = next;
+            return epoch.incrementAndGet();
+        }
+    }
+
+    /**
+     * Get the publish epoch.
+     * @return number of collection cycles completed
+     */
+    public long getEpoch() {
+        return epoch.get();
+    }
+
+    /**
+     * Get a metric by its name.
+     * @param name name of the metric
+     * @return the metric, or null if not registered
+     */
+    public Metric get(String name) {
+        return metrics.get(name);
+    }
+
+    /**
+     * Select the metrics having names starting with a prefix.
+     * @param prefix prefix of the names
+     * @return list of metrics in order of their names
+     */
+    public List<Metric> selectByPrefix(String prefix) {
+        return List.copyOf(metrics.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values());
+    }
+
+    /**
+     * Select the metrics having names matching a regular expression.
+     * @param pattern pattern the whole name needs to match
+     * @return list of metrics in order of their names
+     */
+    public List<Metric> select(Pattern pattern) {
+        return select(name -> pattern.matcher(name).matches());
+    }
+
+    /**
+     * Select the metrics having names accepted by a predicate.
+     * @param predicate predicate on the names
+     * @return list of metrics in order of their names
+     */
+    public List<Metric> select(Predicate<String> predicate) {
+        List<Metric> selected = new ArrayList<>();
+        for (var entry : metrics.entrySet()) {
+            if (predicate.test(entry.getKey()))
+                selected.add(entry.getValue());
+        }
+        return selected;
+    }
+
+    /**
+     * Get the snapshot of all metrics as of the last publish epoch. Each
+     * batch of samples is either completely included or not at all.
+     * @return snapshot of all metrics
+     */
+    public Snapshot snapshot() {
+        return snapshot(metrics.values());
+    }
+
+    /**
+     * Get the snapshot of selected metrics as of the last publish epoch.
+     * Metrics added since are captured as they are, without regard to
+     * batches.
+     * @param selected metrics to be included, in order of the snapshot
+     * @return snapshot of the metrics
+     */
+    public Snapshot snapshot(Collection<Metric> selected) {
+        Map<Metric,MetricSnapshot> view = published;
+        List<MetricSnapshot> snapshots = new ArrayList<>(selected.size());
+        for (Metric metric : selected) {
+            MetricSnapshot snapshot = view.get(metric);
+            snapshots.add(snapshot != null ? snapshot : metric.snapshot());
+        }
+        return new Snapshot(snapshots);
+    }
+
+    /**
+     * Publish a batch of samples atomically with regard to snapshots. The
+     * batch is counted as started and finished, snapshots overlapped by a
+     * batch are not published.
+     * @param batch the samples
+     */
+    void publish(SampleBatch batch) {
+        long timestamp = System.currentTimeMillis();
+        started.incrementAndGet();
+        try {
+            batch.apply(timestamp);
+        } finally {
+            finished.incrementAndGet();
+        }
+    }
+
+    /**
+     * Evict instances of all metrics not updated within the staleness period.
+     * @param ttl staleness period
+     * @return number of instances evicted
+     */
+    public int evictStale(Duration ttl) {
+        long before = System.currentTimeMillis() - ttl.toMillis();
+        int evicted = 0;
+        for (Metric metric : metrics.values())
+            evicted += metric.evictStale(before);
+        if (evicted > 0)
+            LOG.info("Evicted {} series not updated within {}.", evicted, ttl);
+        return evicted;
+    }
+
+    /**
+     * Capture the metrics consistently with regard to batches, clearing their
+     * modified flags. Changes made while capturing flag the metrics again.
+     * If no capture succeeds without a batch overlapping, the metrics are
+     * flagged again to be captured on the next epoch.
+     * @param selected metrics to be captured
+     * @return snapshots of the metrics, or null if capturing kept colliding
+     */
+    private List<MetricSnapshot> capture(List<Metric> selected) {
+        selected.forEach(Metric::clearModified);
+        for (int attempt = 0; attempt < CAPTURE_ATTEMPTS; attempt++) {
+            long before = started.get();
+            if (finished.get() != before) {
+                Thread.yield();
+                continue;
+            }
+            List<MetricSnapshot> snapshots = captureAll(selected);
+            VarHandle.acquireFence();
+            if (started.get() == before)
+                return snapshots;
+        }
+        selected.forEach(Metric::setModified);
+        return null;
+    }
+
+    private static List<MetricSnapshot> captureAll(List<Metric> selected) {
+        List<MetricSnapshot> snapshots = new ArrayList<>(selected.size());
+        for (Metric metric : selected)
+            snapshots.add(metric.snapshot());
+        return snapshots;
     }
 }
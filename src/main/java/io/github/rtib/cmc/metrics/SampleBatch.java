@@ -0,0 +1,80 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Batch of samples recorded together, e.g. all values of a row collected.
+ * The samples of a batch are published atomically with regard to snapshots of
+ * the repository, thus a scrape never mixes values of two collections.
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public final class SampleBatch {
+    private SeriesHandle[] handles;
+    private double[] values;
+    private int size = 0;
+
+    /**
+     * Create an empty batch.
+     */
+    public SampleBatch() {
+        this(8);
+    }
+
+    /**
+     * Create an empty batch.
+     * @param capacity number of samples expected
+     */
+    public SampleBatch(int capacity) {
+        handles = new SeriesHandle[Math.max(1, capacity)];
+        values = new double[handles.length];
+    }
+
+    /**
+     * Add a sample to the batch.
+     * @param handle handle of the series
+     * @param value sample value
+     * @return this batch
+     */
+    public SampleBatch add(SeriesHandle handle, double value) {
+        if (size == handles.length) {
+            handles = Arrays.copyOf(handles, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        handles[size] = handle;
+        values[size] = value;
+        size++;
+        return this;
+    }
+
+    /**
+     * Publish the samples of the batch, all having the same timestamp.
+     */
+    public void publish() {
+        Repository.getInstance().publish(this);
+    }
+
+    /**
+     * Write the samples to their series stores.
+     * @param timestamp timestamp of the samples in milliseconds
+     */
+    void apply(long timestamp) {
+        for (int i = 0; i < size; i++)
+            handles[i].store.set(handles[i], values[i], timestamp);
+    }
+}
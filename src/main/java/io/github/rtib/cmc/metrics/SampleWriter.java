@@ -0,0 +1,108 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writer of sample lines. Series are written by their pre-rendered prefixes,
+ * only values and timestamps are formatted, reusing the buffers of the
+ * writer.
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+final class SampleWriter {
+    private final OutputStream out;
+    private final StringBuilder sb = new StringBuilder(48);
+    private byte[] buffer = new byte[48];
+
+    /**
+     * Create a writer.
+     * @param out stream to write to
+     */
+    SampleWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Write a sample in Prometheus text format.
+     * @param prefix rendered name and labels of the series
+     * @param value sample value
+     * @param timestamp sample timestamp in milliseconds
+     * @throws IOException if writing to the output failed
+     */
+    void writeText(byte[] prefix, double value, long timestamp) throws IOException {
+        sb.setLength(0);
+        sb.append(' ')
+            .append(value)
+            .append(' ')
+            .append(timestamp)
+            .append('\n');
+        out.write(prefix);
+        writeBuffer();
+    }
+
+    /**
+     * Write a sample in OpenMetrics format. The sample name is the family
+     * name followed by a suffix, the labels are taken from the prefix of the
+     * series.
+     * @param family name of the metric family
+     * @param suffix suffix of the sample name, may be empty
+     * @param prefix rendered name and labels of the series
+     * @param labels offset of the labels within the prefix
+     * @param value sample value
+     * @param timestamp sample timestamp in milliseconds
+     * @throws IOException if writing to the output failed
+     */
+    void writeOpenMetrics(byte[] family, byte[] suffix, byte[] prefix, int labels, double value, long timestamp) throws IOException {
+        sb.setLength(0);
+        sb.append(' ');
+        if (Double.isNaN(value))
+            sb.append("NaN");
+        else if (value == Double.POSITIVE_INFINITY)
+            sb.append("+Inf");
+        else if (value == Double.NEGATIVE_INFINITY)
+            sb.append("-Inf");
+        else
+            sb.append(value);
+        // timestamps are seconds
+        int millis = (int) Math.floorMod(timestamp, 1000L);
+        sb.append(' ')
+            .append(Math.floorDiv(timestamp, 1000L))
+            .append('.');
+        if (millis < 100)
+            sb.append('0');
+        if (millis < 10)
+            sb.append('0');
+        sb.append(millis)
+            .append('\n');
+        out.write(family);
+        out.write(suffix);
+        out.write(prefix, labels, prefix.length - labels);
+        writeBuffer();
+    }
+
+    private void writeBuffer() throws IOException {
+        // formatted numbers are ASCII only
+        int length = sb.length();
+        if (length > buffer.length)
+            buffer = new byte[length];
+        for (int i = 0; i < length; i++)
+            buffer[i] = (byte) sb.charAt(i);
+        out.write(buffer, 0, length);
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.metrics;
+
+import java.util.List;
+
+/**
+ * Handle of a metric instance, as returned by Metric.addInstance. The handle
+ * is pre-resolving the slot of the instance, setting a value through it needs
+ * neither hashing of labels nor allocation. A handle of a removed instance
+ * gets invalid, values set through it are dropped. Values set through a handle
+ * of an instance evicted as being stale revive the instance.
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public final class SeriesHandle {
+
+    final SeriesStore store;
+    final int id;
+    final int generation;
+    final List<Label> labels;
+    volatile boolean evicted = false;
+    volatile SeriesHandle successor;
+
+    SeriesHandle(SeriesStore store, int id, int generation, List<Label> labels) {
+        this.store = store;
+        this.id = id;
+        this.generation = generation;
+        this.labels = labels;
+    }
+
+    @Override
+    public String toString() {
+        return "SeriesHandle{" + id + "/" + generation + "}";
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.metrics;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Short-term history of the samples of a series. Samples are kept in Gorilla
+ * compressed chunks, chunks entirely older than the retention are dropped.
+ * The history enables rate calculation, backfilling of gaps and debugging
+ * without a round trip to the TSDB.
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public final class SeriesHistory {
+    private static final int CHUNK_SAMPLES = 120;
+
+    private final long retentionMillis;
+    private final Deque<GorillaChunk> chunks = new ArrayDeque<>();
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    /**
+     * Consumer of historic samples.
+     */
+    public interface SampleConsumer {
+        /**
+         * Accept a sample.
+         * @param timestamp sample timestamp in milliseconds
+         * @param value sample value
+         */
+        void accept(long timestamp, double value);
+    }
+
+    /**
+     * Create an empty history.
+     * @param retention period samples are retained for
+     */
+    public SeriesHistory(Duration retention) {
+        this.retentionMillis = retention.toMillis();
+    }
+
+    /**
+     * Append a sample. Samples not newer than the last one are ignored.
+     * @param timestamp sample timestamp in milliseconds
+     * @param value sample value
+     */
+    public synchronized void append(long timestamp, double value) {
+        if (timestamp <= lastTimestamp)
+            return;
+        GorillaChunk chunk = chunks.peekLast();
+        if (chunk == null || chunk.size() >= CHUNK_SAMPLES) {
+            chunk = new GorillaChunk();
+            chunks.addLast(chunk);
+        }
+        chunk.append(timestamp, value);
+        lastTimestamp = timestamp;
+        while (chunks.size() > 1 && chunks.peekFirst().getLastTimestamp() < timestamp - retentionMillis)
+            chunks.removeFirst();
+    }
+
+    /**
+     * Iterate the samples within a time range.
+     * @param from first timestamp in milliseconds, inclusive
+     * @param to last timestamp in milliseconds, inclusive
+     * @param consumer consumer of the samples, in order of timestamps
+     */
+    public synchronized void forEach(long from, long to, SampleConsumer consumer) {
+        for (GorillaChunk chunk : chunks) {
+            if (chunk.getLastTimestamp() < from || chunk.getFirstTimestamp() > to)
+                continue;
+            chunk.forEach((timestamp, value) -> {
+                if (timestamp >= from && timestamp <= to)
+                    consumer.accept(timestamp, value);
+            });
+        }
+    }
+
+    /**
+     * Calculate the per second rate of increase of a counter over a window
+     * ending with the last sample. Decreasing values are considered counter
+     * resets.
+     * @param window period the rate is calculated over
+     * @return rate per second, or NaN if less than two samples are in the window
+     */
+    public synchronized double rate(Duration window) {
+        return rate(lastTimestamp - window.toMillis(), lastTimestamp);
+    }
+
+    /**
+     * Calculate the per second rate of increase of a counter over the samples
+     * within a time range. Decreasing values are considered counter resets.
+     * @param from start of the range in milliseconds, inclusive
+     * @param to end of the range in milliseconds, inclusive
+     * @return rate per second, or NaN if less than two samples are in the range
+     */
+    public synchronized double rate(long from, long to) {
+        double[] state = {Double.NaN, 0, 0, 0}; // previous value, increase, first, last timestamp
+        forEach(from, to, (timestamp, value) -> {
+            if (Double.isNaN(state[0]))
+                state[2] = timestamp;
+            else
+                state[1] += value >= state[0] ? value - state[0] : value;
+            state[0] = value;
+            state[3] = timestamp;
+        });
+        if (state[3] <= state[2])
+            return Double.NaN;
+        return state[1] * 1000 / (state[3] - state[2]);
+    }
+
+    /**
+     * Get the number of samples retained.
+     * @return number of samples
+     */
+    public synchronized int size() {
+        return chunks.stream().mapToInt(GorillaChunk::size).sum();
+    }
+
+    /**
+     * Get the number of bytes the compressed samples take.
+     * @return size of the samples in bytes
+     */
+    public synchronized int sizeInBytes() {
+        return chunks.stream().mapToInt(GorillaChunk::sizeInBytes).sum();
+    }
+}
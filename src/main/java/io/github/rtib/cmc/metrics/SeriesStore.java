@@ -0,0 +1,549 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.metrics;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Store of the series of a metric. Each series is assigned a slot id, values
+ * and timestamps are kept in primitive arrays indexed by the slot id. Arrays
+ * are allocated in pages never moved once allocated, hence samples are
+ * written and read without allocation. Only adding and removing a series is
+ * synchronized. Each slot has a sequence lock: writers hold it for the time
+ * of writing a sample, readers retry if a write overlapped, thus the value
+ * and timestamp of a sample are always read together. Slots of removed
+ * series are reused, the generation of a slot is incremented under its lock
+ * on each reuse, invalidating handles of the former series. The exposition
+ * prefix of a series is rendered once when the series is added. Series not
+ * updated for a while may be evicted, their handles revive them on the next
+ * update. Optionally, values, timestamps and creation times are held off
+ * heap in direct buffers. Generations, sequences, labels, rendered prefixes
+ * and histories of the slots are kept on heap regardless. Optionally, a
+ * compressed short-term history of the samples is kept.
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+final class SeriesStore {
+    private static final int PAGE_BITS = 6;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final VarHandle DOUBLES = MethodHandles.arrayElementVarHandle(double[].class);
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle LABELS = MethodHandles.arrayElementVarHandle(List[].class);
+    private static final VarHandle BUFFER_LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final byte[] NO_PREFIX = new byte[0];
+
+    private final Map<List<Label>,SeriesHandle> handles = new ConcurrentHashMap<>();
+    private final Deque<Integer> free = new ArrayDeque<>();
+    private volatile Page[] pages = new Page[0];
+    // set on any change, cleared when the repository captures the store
+    private volatile boolean modified = true;
+    private int next = 0;
+    private final Function<List<Label>,byte[]> renderer;
+    private final boolean offHeap;
+    private final Duration history;
+
+    /**
+     * Create a store without rendering exposition prefixes.
+     */
+    SeriesStore() {
+        this(labels -> NO_PREFIX, false, Duration.ZERO);
+    }
+
+    /**
+     * Create a store.
+     * @param renderer renders the exposition prefix of a series by its labels
+     * @param offHeap whether values and timestamps are held in direct buffers
+     * @param history retention of the sample history of each series, zero to keep the last sample only
+     */
+    SeriesStore(Function<List<Label>,byte[]> renderer, boolean offHeap, Duration history) {
+        this.renderer = renderer;
+        this.offHeap = offHeap;
+        this.history = history;
+    }
+
+    /**
+     * Whether a sample history of the series is kept.
+     * @return true if the retention of the history is not zero
+     */
+    boolean hasHistory() {
+        return !history.isZero();
+    }
+
+    /**
+     * Consumer of series samples.
+     */
+    interface SampleConsumer {
+        /**
+         * Accept a sample.
+         * @param labels labels of the series
+         * @param value sample value
+         * @param timestamp sample timestamp in milliseconds
+         */
+        void accept(List<Label> labels, double value, long timestamp);
+    }
+
+    /**
+     * Consumer of series samples by their exposition prefix.
+     */
+    interface PrefixConsumer {
+        /**
+         * Accept a sample.
+         * @param labels labels of the series
+         * @param prefix rendered exposition prefix of the series, not to be modified
+         * @param value sample value
+         * @param timestamp sample timestamp in milliseconds
+         */
+        void accept(List<Label> labels, byte[] prefix, double value, long timestamp);
+    }
+
+    /**
+     * Consumer of series histories.
+     */
+    interface HistoryConsumer {
+        /**
+         * Accept the history of a series.
+         * @param prefix rendered exposition prefix of the series, not to be modified
+         * @param history sample history of the series
+         */
+        void accept(byte[] prefix, SeriesHistory history);
+    }
+
+    /**
+     * Add a series, if not yet present.
+     * @param labels labels of the series
+     * @return handle of the series
+     */
+    synchronized SeriesHandle add(List<Label> labels) {
+        SeriesHandle existing = handles.get(labels);
+        if (existing != null)
+            return existing;
+        int id = free.isEmpty() ? next++ : free.pop();
+        if ((id >> PAGE_BITS) >= pages.length) {
+            Page[] grown = Arrays.copyOf(pages, pages.length + 1);
+            grown[pages.length] = offHeap ? new DirectPage() : new HeapPage();
+            pages = grown;
+        }
+        Page page = pages[id >> PAGE_BITS];
+        int slot = id & PAGE_MASK;
+        byte[] prefix = renderer.apply(labels);
+        int sequence = page.lock(slot);
+        int generation = page.generations[slot] + 1;
+        try {
+            page.histories[slot] = history.isZero() ? null : new SeriesHistory(history);
+            INTS.setRelease(page.generations, slot, generation);
+            page.setTimestamp(slot, 0L);
+            page.setCreated(slot, System.currentTimeMillis());
+            page.prefixes[slot] = prefix;
+            LABELS.setRelease(page.labels, slot, labels);
+        } finally {
+            page.unlock(slot, sequence);
+        }
+        SeriesHandle handle = new SeriesHandle(this, id, generation, labels);
+        handles.put(labels, handle);
+        modified = true;
+        return handle;
+    }
+
+    /**
+     * Remove a series.
+     * @param labels labels of the series
+     */
+    synchronized void remove(List<Label> labels) {
+        SeriesHandle handle = handles.remove(labels);
+        if (handle == null)
+            return;
+        int id = handle.id;
+        Page page = pages[id >> PAGE_BITS];
+        int slot = id & PAGE_MASK;
+        int sequence = page.lock(slot);
+        try {
+            INTS.setRelease(page.generations, slot, handle.generation + 1);
+            LABELS.setRelease(page.labels, slot, null);
+            page.setTimestamp(slot, 0L);
+            page.histories[slot] = null;
+        } finally {
+            page.unlock(slot, sequence);
+        }
+        free.push(id);
+        modified = true;
+    }
+
+    /**
+     * Evict series neither updated nor added since a point in time. Handles of
+     * evicted series revive them when updated.
+     * @param before time in milliseconds series are stale if not updated since
+     * @return number of series evicted
+     */
+    synchronized int evict(long before) {
+        List<SeriesHandle> stale = new ArrayList<>();
+        for (SeriesHandle handle : handles.values()) {
+            Page page = pages[handle.id >> PAGE_BITS];
+            long updated = page.getTimestamp(handle.id & PAGE_MASK);
+            if (updated == 0)
+                updated = page.getCreated(handle.id & PAGE_MASK);
+            if (updated < before)
+                stale.add(handle);
+        }
+        for (SeriesHandle handle : stale) {
+            handle.evicted = true;
+            remove(handle.labels);
+        }
+        return stale.size();
+    }
+
+    /**
+     * Get the handle of a series.
+     * @param labels labels of the series
+     * @return handle, or null if the series is not present
+     */
+    SeriesHandle handle(List<Label> labels) {
+        return handles.get(labels);
+    }
+
+    /**
+     * Write a sample of a series. Samples of invalid handles are dropped,
+     * except of handles of evicted series, which are revived.
+     * @param handle handle of the series
+     * @param value sample value
+     * @param timestamp sample timestamp in milliseconds
+     */
+    void set(SeriesHandle handle, double value, long timestamp) {
+        if (handle.store != this)
+            return;
+        if (!write(handle, value, timestamp) && handle.evicted)
+            write(revive(handle), value, timestamp);
+    }
+
+    /**
+     * Write a sample under the lock of the slot, if the handle is valid. The
+     * generation is checked under the lock, the slot can't be reused while
+     * the sample is written.
+     * @return true if written, false if the handle is invalid
+     */
+    private boolean write(SeriesHandle handle, double value, long timestamp) {
+        Page page = pages[handle.id >> PAGE_BITS];
+        int slot = handle.id & PAGE_MASK;
+        if ((int) INTS.getAcquire(page.generations, slot) != handle.generation)
+            return false;
+        int sequence = page.lock(slot);
+        SeriesHistory samples;
+        try {
+            if (page.generations[slot] != handle.generation)
+                return false;
+            page.setValue(slot, value);
+            page.setTimestamp(slot, timestamp);
+            samples = page.histories[slot];
+            if (!modified)
+                modified = true;
+        } finally {
+            page.unlock(slot, sequence);
+        }
+        // the history is synchronized on its own, not held under the slot lock
+        if (samples != null)
+            samples.append(timestamp, value);
+        return true;
+    }
+
+    /**
+     * Get the current handle of the series of an evicted handle, adding the
+     * series if evicted again. A successor evicted itself is replaced by the
+     * handle re-resolved through the map, thus successors don't chain.
+     * @param handle evicted handle
+     * @return handle of the series, invalid if removed meanwhile
+     */
+    private SeriesHandle revive(SeriesHandle handle) {
+        SeriesHandle successor = handle.successor;
+        if (successor == null || successor.evicted) {
+            successor = add(handle.labels);
+            handle.successor = successor;
+        }
+        return successor;
+    }
+
+    /**
+     * Iterate the samples of all series having a value, in order of slots.
+     * @param consumer consumer of the samples
+     */
+    @SuppressWarnings("unchecked")
+    void forEach(SampleConsumer consumer) {
+        Page[] current = pages;
+        for (Page page : current) {
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                List<Label> labels;
+                double value;
+                long timestamp;
+                int sequence;
+                do {
+                    sequence = page.readBegin(i);
+                    labels = (List<Label>) LABELS.getAcquire(page.labels, i);
+                    value = page.getValue(i);
+                    timestamp = page.getTimestamp(i);
+                } while (!page.readValidate(i, sequence));
+                if (labels == null || timestamp == 0)
+                    continue;
+                consumer.accept(labels, value, timestamp);
+            }
+        }
+    }
+
+    /**
+     * Iterate the samples of all series having a value by their exposition
+     * prefix, in order of slots.
+     * @param consumer consumer of the samples
+     */
+    @SuppressWarnings("unchecked")
+    void forEachPrefixed(PrefixConsumer consumer) {
+        Page[] current = pages;
+        for (Page page : current) {
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                List<Label> labels;
+                byte[] prefix;
+                double value;
+                long timestamp;
+                int sequence;
+                do {
+                    sequence = page.readBegin(i);
+                    // the prefix is published by the release store of the labels
+                    labels = (List<Label>) LABELS.getAcquire(page.labels, i);
+                    prefix = page.prefixes[i];
+                    value = page.getValue(i);
+                    timestamp = page.getTimestamp(i);
+                } while (!page.readValidate(i, sequence));
+                if (labels == null || timestamp == 0)
+                    continue;
+                consumer.accept(labels, prefix, value, timestamp);
+            }
+        }
+    }
+
+    /**
+     * Get the sample history of a series.
+     * @param handle handle of the series
+     * @return history, or null if the handle is invalid or no history is kept
+     */
+    SeriesHistory history(SeriesHandle handle) {
+        if (handle.store != this)
+            return null;
+        Page page = pages[handle.id >> PAGE_BITS];
+        int slot = handle.id & PAGE_MASK;
+        if ((int) INTS.getAcquire(page.generations, slot) != handle.generation)
+            return null;
+        return page.histories[slot];
+    }
+
+    /**
+     * Iterate the histories of all series, in order of slots.
+     * @param consumer consumer of the histories
+     */
+    void forEachHistory(HistoryConsumer consumer) {
+        Page[] current = pages;
+        for (Page page : current) {
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                if (LABELS.getAcquire(page.labels, i) == null)
+                    continue;
+                SeriesHistory samples = page.histories[i];
+                if (samples != null)
+                    consumer.accept(page.prefixes[i], samples);
+            }
+        }
+    }
+
+    /**
+     * Whether series were added, removed or samples written since the flag
+     * was cleared.
+     * @return true if modified
+     */
+    boolean isModified() {
+        return modified;
+    }
+
+    /**
+     * Clear the modified flag, before capturing the store.
+     */
+    void clearModified() {
+        modified = false;
+    }
+
+    /**
+     * Flag the store modified, to be captured again.
+     */
+    void setModified() {
+        modified = true;
+    }
+
+    /**
+     * Get the number of series present.
+     * @return number of series
+     */
+    int size() {
+        return handles.size();
+    }
+
+    /**
+     * Page of slots. Values, timestamps and creation times are held by the
+     * implementation, the index of the slots is kept on heap.
+     */
+    private abstract static class Page {
+        // odd while the slot is being written
+        private final int[] sequences = new int[PAGE_SIZE];
+        private final int[] generations = new int[PAGE_SIZE];
+        private final List<?>[] labels = new List<?>[PAGE_SIZE];
+        private final byte[][] prefixes = new byte[PAGE_SIZE][];
+        private final SeriesHistory[] histories = new SeriesHistory[PAGE_SIZE];
+
+        /**
+         * Lock a slot for writing.
+         * @return sequence of the slot before locking
+         */
+        int lock(int slot) {
+            while (true) {
+                int sequence = (int) INTS.getVolatile(sequences, slot);
+                if ((sequence & 1) == 0 && INTS.compareAndSet(sequences, slot, sequence, sequence + 1))
+                    return sequence;
+                Thread.onSpinWait();
+            }
+        }
+
+        void unlock(int slot, int sequence) {
+            INTS.setRelease(sequences, slot, sequence + 2);
+        }
+
+        /**
+         * Begin reading a slot, waiting for a write in progress.
+         * @return sequence of the slot to be validated after reading
+         */
+        int readBegin(int slot) {
+            int sequence;
+            while (((sequence = (int) INTS.getAcquire(sequences, slot)) & 1) != 0)
+                Thread.onSpinWait();
+            return sequence;
+        }
+
+        /**
+         * Check that no write overlapped reading a slot.
+         * @return true if the values read are consistent
+         */
+        boolean readValidate(int slot, int sequence) {
+            VarHandle.acquireFence();
+            return (int) INTS.getOpaque(sequences, slot) == sequence;
+        }
+
+        abstract double getValue(int slot);
+
+        abstract void setValue(int slot, double value);
+
+        abstract long getTimestamp(int slot);
+
+        abstract void setTimestamp(int slot, long timestamp);
+
+        abstract long getCreated(int slot);
+
+        abstract void setCreated(int slot, long created);
+    }
+
+    private static final class HeapPage extends Page {
+        private final double[] values = new double[PAGE_SIZE];
+        private final long[] timestamps = new long[PAGE_SIZE];
+        private final long[] created = new long[PAGE_SIZE];
+
+        @Override
+        double getValue(int slot) {
+            return (double) DOUBLES.getOpaque(values, slot);
+        }
+
+        @Override
+        void setValue(int slot, double value) {
+            DOUBLES.setOpaque(values, slot, value);
+        }
+
+        @Override
+        long getTimestamp(int slot) {
+            return (long) LONGS.getAcquire(timestamps, slot);
+        }
+
+        @Override
+        void setTimestamp(int slot, long timestamp) {
+            LONGS.setRelease(timestamps, slot, timestamp);
+        }
+
+        @Override
+        long getCreated(int slot) {
+            return created[slot];
+        }
+
+        @Override
+        void setCreated(int slot, long created) {
+            this.created[slot] = created;
+        }
+    }
+
+    /**
+     * Page holding values, timestamps and creation times in a direct buffer,
+     * in fixed width slots of the value followed by the timestamp and the
+     * creation time.
+     */
+    private static final class DirectPage extends Page {
+        private static final int SLOT_BYTES = 3 * Long.BYTES;
+        private final ByteBuffer buffer = ByteBuffer
+                .allocateDirect(PAGE_SIZE * SLOT_BYTES + Long.BYTES)
+                .alignedSlice(Long.BYTES)
+                .order(ByteOrder.nativeOrder());
+
+        @Override
+        double getValue(int slot) {
+            return Double.longBitsToDouble((long) BUFFER_LONGS.getOpaque(buffer, slot * SLOT_BYTES));
+        }
+
+        @Override
+        void setValue(int slot, double value) {
+            BUFFER_LONGS.setOpaque(buffer, slot * SLOT_BYTES, Double.doubleToRawLongBits(value));
+        }
+
+        @Override
+        long getTimestamp(int slot) {
+            return (long) BUFFER_LONGS.getAcquire(buffer, slot * SLOT_BYTES + Long.BYTES);
+        }
+
+        @Override
+        void setTimestamp(int slot, long timestamp) {
+            BUFFER_LONGS.setRelease(buffer, slot * SLOT_BYTES + Long.BYTES, timestamp);
+        }
+
+        @Override
+        long getCreated(int slot) {
+            return (long) BUFFER_LONGS.get(buffer, slot * SLOT_BYTES + 2 * Long.BYTES);
+        }
+
+        @Override
+        void setCreated(int slot, long created) {
+            BUFFER_LONGS.set(buffer, slot * SLOT_BYTES + 2 * Long.BYTES, created);
+        }
+    }
+}
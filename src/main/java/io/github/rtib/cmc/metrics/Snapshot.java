@@ -0,0 +1,66 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Immutable snapshot of all metrics of the repository. Sample batches are
+ * either completely included in a snapshot or not at all.
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public final class Snapshot {
+    private static final byte[] EOF = "# EOF\n".getBytes(StandardCharsets.UTF_8);
+    private final List<MetricSnapshot> metrics;
+
+    Snapshot(List<MetricSnapshot> metrics) {
+        this.metrics = List.copyOf(metrics);
+    }
+
+    /**
+     * Get the snapshots of the metrics, in order of the repository.
+     * @return list of metric snapshots
+     */
+    public List<MetricSnapshot> getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Write all metrics of the snapshot.
+     * @param out stream to write to
+     * @throws IOException if writing to the output failed
+     */
+    public void write(OutputStream out) throws IOException {
+        write(out, ExpositionFormat.TEXT);
+    }
+
+    /**
+     * Write all metrics of the snapshot in an exposition format.
+     * @param out stream to write to
+     * @param format exposition format to write
+     * @throws IOException if writing to the output failed
+     */
+    public void write(OutputStream out, ExpositionFormat format) throws IOException {
+        for (MetricSnapshot metric : metrics)
+            metric.write(out, format);
+        if (format == ExpositionFormat.OPENMETRICS)
+            out.write(EOF);
+    }
+}
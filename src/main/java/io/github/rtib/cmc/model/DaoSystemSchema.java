@@ -18,6 +18,7 @@ package io.github.rtib.cmc.model;
 import com.datastax.oss.driver.api.core.PagingIterable;
 import com.datastax.oss.driver.api.mapper.annotations.Dao;
 import com.datastax.oss.driver.api.mapper.annotations.Query;
+import com.datastax.oss.driver.api.mapper.annotations.StatementAttributes;
 import io.github.rtib.cmc.model.system_schema.TableName;
 
 /**
@@ -32,6 +33,7 @@ public interface DaoSystemSchema {
      * List all tables with fully qualified names.
      * @return iterable list of fully qualified table names
      */
+    @StatementAttributes(executionProfileName = "scan")
     @Query("SELECT keyspace_name, table_name FROM system_schema.tables")
     PagingIterable<TableName> listAllTables();
 }
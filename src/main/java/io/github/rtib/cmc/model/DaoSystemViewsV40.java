@@ -15,10 +15,12 @@
  */
 package io.github.rtib.cmc.model;
 
+import com.datastax.oss.driver.api.core.MappedAsyncPagingIterable;
 import com.datastax.oss.driver.api.core.PagingIterable;
 import com.datastax.oss.driver.api.mapper.annotations.Dao;
 import com.datastax.oss.driver.api.mapper.annotations.Query;
 import com.datastax.oss.driver.api.mapper.annotations.Select;
+import com.datastax.oss.driver.api.mapper.annotations.StatementAttributes;
 import io.github.rtib.cmc.model.system_views.CacheName;
 import io.github.rtib.cmc.model.system_views.Caches;
 import io.github.rtib.cmc.model.system_views.CoordinatorReadLatency;
@@ -33,6 +35,7 @@ import io.github.rtib.cmc.model.system_views.RowsPerRead;
 import io.github.rtib.cmc.model.system_views.ThreadPoolName;
 import io.github.rtib.cmc.model.system_views.ThreadPools;
 import io.github.rtib.cmc.model.system_views.TombstonesPerRead;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Interface of data access to system_views.
@@ -54,10 +57,28 @@ public interface DaoSystemViewsV40 {
     @Select
     DiskUsage diskUsageFor(String keyspace_name, String table_name);
     
+    /**
+     * Asynchronously get the DiskUsage entity of a specific table.
+     * @param keyspace_name selector value
+     * @param table_name selector value
+     * @return stage completing with the metrics entity
+     */
+    @Select
+    CompletionStage<DiskUsage> diskUsageForAsync(String keyspace_name, String table_name);
+    
+    /**
+     * Asynchronously get disk usage metrics of all tables.
+     * @return stage completing with the first page of entities
+     */
+    @StatementAttributes(executionProfileName = "scan")
+    @Select
+    CompletionStage<MappedAsyncPagingIterable<DiskUsage>> scanDiskUsageAsync();
+    
     /**
      * List the names of all thread pools.
      * @return iterable list of thread pools
      */
+    @StatementAttributes(executionProfileName = "scan")
     @Query("SELECT name FROM system_views.thread_pools")
     PagingIterable<ThreadPoolName> listThreadPools();
     
@@ -69,10 +90,19 @@ public interface DaoSystemViewsV40 {
     @Select
     ThreadPools threadPool(String name);
     
+    /**
+     * Asynchronously get the metrics of a thread pool.
+     * @param name of the thread pool
+     * @return stage completing with the metrics entity
+     */
+    @Select
+    CompletionStage<ThreadPools> threadPoolAsync(String name);
+    
     /**
      * List cache names.
      * @return list of cache names
      */
+    @StatementAttributes(executionProfileName = "scan")
     @Query("SELECT name FROM system_views.caches")
     PagingIterable<CacheName> listCaches();
     
@@ -84,6 +114,14 @@ public interface DaoSystemViewsV40 {
     @Select
     Caches caches(String name);
     
+    /**
+     * Asynchronously get metrics of the specified system cache.
+     * @param name system cache name
+     * @return stage completing with the metrics entity
+     */
+    @Select
+    CompletionStage<Caches> cachesAsync(String name);
+    
     /**
      * Get coordinator read latency metrics for a given table.
      * @param keyspace_name selector value
@@ -93,6 +131,23 @@ public interface DaoSystemViewsV40 {
     @Select
     CoordinatorReadLatency CoordinatorReadLatency(String keyspace_name, String table_name);
     
+    /**
+     * Asynchronously get coordinator read latency metrics for a given table.
+     * @param keyspace_name selector value
+     * @param table_name selector value
+     * @return stage completing with the metrics entity
+     */
+    @Select
+    CompletionStage<CoordinatorReadLatency> CoordinatorReadLatencyAsync(String keyspace_name, String table_name);
+    
+    /**
+     * Asynchronously get coordinator read latency metrics of all tables.
+     * @return stage completing with the first page of entities
+     */
+    @StatementAttributes(executionProfileName = "scan")
+    @Select
+    CompletionStage<MappedAsyncPagingIterable<CoordinatorReadLatency>> scanCoordinatorReadLatencyAsync();
+    
     /**
      * Get coordinator write latency metrics for a given table.
      * @param keyspace_name selector value
@@ -102,6 +157,23 @@ public interface DaoSystemViewsV40 {
     @Select
     CoordinatorWriteLatency CoordinatorWriteLatency(String keyspace_name, String table_name);
     
+    /**
+     * Asynchronously get coordinator write latency metrics for a given table.
+     * @param keyspace_name selector value
+     * @param table_name selector value
+     * @return stage completing with the metrics entity
+     */
+    @Select
+    CompletionStage<CoordinatorWriteLatency> CoordinatorWriteLatencyAsync(String keyspace_name, String table_name);
+    
+    /**
+     * Asynchronously get coordinator write latency metrics of all tables.
+     * @return stage completing with the first page of entities
+     */
+    @StatementAttributes(executionProfileName = "scan")
+    @Select
+    CompletionStage<MappedAsyncPagingIterable<CoordinatorWriteLatency>> scanCoordinatorWriteLatencyAsync();
+    
     /**
      * Get coordinator scan latency metrics for a given table.
      * @param keyspace_name selector value
@@ -111,6 +183,23 @@ public interface DaoSystemViewsV40 {
     @Select
     CoordinatorScanLatency CoordinatorScanLatency(String keyspace_name, String table_name);
     
+    /**
+     * Asynchronously get coordinator scan latency metrics for a given table.
+     * @param keyspace_name selector value
+     * @param table_name selector value
+     * @return stage completing with the metrics entity
+     */
+    @Select
+    CompletionStage<CoordinatorScanLatency> CoordinatorScanLatencyAsync(String keyspace_name, String table_name);
+    
+    /**
+     * Asynchronously get coordinator scan latency metrics of all tables.
+     * @return stage completing with the first page of entities
+     */
+    @StatementAttributes(executionProfileName = "scan")
+    @Select
+    CompletionStage<MappedAsyncPagingIterable<CoordinatorScanLatency>> scanCoordinatorScanLatencyAsync();
+    
     /**
      * Get local read latency metrics for a given table.
      * @param keyspace_name selector value
@@ -120,6 +209,23 @@ public interface DaoSystemViewsV40 {
     @Select
     LocalReadLatency LocalReadLatency(String keyspace_name, String table_name);
     
+    /**
+     * Asynchronously get local read latency metrics for a given table.
+     * @param keyspace_name selector value
+     * @param table_name selector value
+     * @return stage completing with the metrics entity
+     */
+    @Select
+    CompletionStage<LocalReadLatency> LocalReadLatencyAsync(String keyspace_name, String table_name);
+    
+    /**
+     * Asynchronously get local read latency metrics of all tables.
+     * @return stage completing with the first page of entities
+     */
+    @StatementAttributes(executionProfileName = "scan")
+    @Select
+    CompletionStage<MappedAsyncPagingIterable<LocalReadLatency>> scanLocalReadLatencyAsync();
+    
     /**
      * Get local write latency metrics for a given table.
      * @param keyspace_name selector value
@@ -129,6 +235,23 @@ public interface DaoSystemViewsV40 {
     @Select
     LocalWriteLatency LocalWriteLatency(String keyspace_name, String table_name);
     
+    /**
+     * Asynchronously get local write latency metrics for a given table.
+     * @param keyspace_name selector value
+     * @param table_name selector value
+     * @return stage completing with the metrics entity
+     */
+    @Select
+    CompletionStage<LocalWriteLatency> LocalWriteLatencyAsync(String keyspace_name, String table_name);
+    
+    /**
+     * Asynchronously get local write latency metrics of all tables.
+     * @return stage completing with the first page of entities
+     */
+    @StatementAttributes(executionProfileName = "scan")
+    @Select
+    CompletionStage<MappedAsyncPagingIterable<LocalWriteLatency>> scanLocalWriteLatencyAsync();
+    
     /**
      * Get local scan latency metrics for a given table.
      * @param keyspace_name selector value
@@ -138,6 +261,23 @@ public interface DaoSystemViewsV40 {
     @Select
     LocalScanLatency LocalScanLatency(String keyspace_name, String table_name);
     
+    /**
+     * Asynchronously get local scan latency metrics for a given table.
+     * @param keyspace_name selector value
+     * @param table_name selector value
+     * @return stage completing with the metrics entity
+     */
+    @Select
+    CompletionStage<LocalScanLatency> LocalScanLatencyAsync(String keyspace_name, String table_name);
+    
+    /**
+     * Asynchronously get local scan latency metrics of all tables.
+     * @return stage completing with the first page of entities
+     */
+    @StatementAttributes(executionProfileName = "scan")
+    @Select
+    CompletionStage<MappedAsyncPagingIterable<LocalScanLatency>> scanLocalScanLatencyAsync();
+    
     /**
      * Get tombstones per read metrics for a given table.
      * @param keyspace_name selector value
@@ -147,6 +287,23 @@ public interface DaoSystemViewsV40 {
     @Select
     TombstonesPerRead TombstonesPerRead(String keyspace_name, String table_name);
     
+    /**
+     * Asynchronously get tombstones per read metrics for a given table.
+     * @param keyspace_name selector value
+     * @param table_name selector value
+     * @return stage completing with the metrics entity
+     */
+    @Select
+    CompletionStage<TombstonesPerRead> TombstonesPerReadAsync(String keyspace_name, String table_name);
+    
+    /**
+     * Asynchronously get tombstones per read metrics of all tables.
+     * @return stage completing with the first page of entities
+     */
+    @StatementAttributes(executionProfileName = "scan")
+    @Select
+    CompletionStage<MappedAsyncPagingIterable<TombstonesPerRead>> scanTombstonesPerReadAsync();
+    
     /**
      * Get rows per read metrics for a given table.
      * @param keyspace_name selector value
@@ -156,6 +313,23 @@ public interface DaoSystemViewsV40 {
     @Select
     RowsPerRead RowsPerRead(String keyspace_name, String table_name);
     
+    /**
+     * Asynchronously get rows per read metrics for a given table.
+     * @param keyspace_name selector value
+     * @param table_name selector value
+     * @return stage completing with the metrics entity
+     */
+    @Select
+    CompletionStage<RowsPerRead> RowsPerReadAsync(String keyspace_name, String table_name);
+    
+    /**
+     * Asynchronously get rows per read metrics of all tables.
+     * @return stage completing with the first page of entities
+     */
+    @StatementAttributes(executionProfileName = "scan")
+    @Select
+    CompletionStage<MappedAsyncPagingIterable<RowsPerRead>> scanRowsPerReadAsync();
+    
     /**
      * Get the max partition size of the given table.
      * @param keyspace_name selector value
@@ -164,4 +338,21 @@ public interface DaoSystemViewsV40 {
      */
     @Select
     MaxPartitionSize MaxPartitionSize(String keyspace_name, String table_name);
+    
+    /**
+     * Asynchronously get the max partition size of the given table.
+     * @param keyspace_name selector value
+     * @param table_name selector value
+     * @return stage completing with the metrics entity
+     */
+    @Select
+    CompletionStage<MaxPartitionSize> MaxPartitionSizeAsync(String keyspace_name, String table_name);
+    
+    /**
+     * Asynchronously get max partition size metrics of all tables.
+     * @return stage completing with the first page of entities
+     */
+    @StatementAttributes(executionProfileName = "scan")
+    @Select
+    CompletionStage<MappedAsyncPagingIterable<MaxPartitionSize>> scanMaxPartitionSizeAsync();
 }
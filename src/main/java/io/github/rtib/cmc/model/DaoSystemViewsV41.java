@@ -19,10 +19,12 @@ import com.datastax.oss.driver.api.core.PagingIterable;
 import com.datastax.oss.driver.api.mapper.annotations.Dao;
 import com.datastax.oss.driver.api.mapper.annotations.Query;
 import com.datastax.oss.driver.api.mapper.annotations.Select;
+import com.datastax.oss.driver.api.mapper.annotations.StatementAttributes;
 import io.github.rtib.cmc.model.system_views.BatchMetrics;
 import io.github.rtib.cmc.model.system_views.BatchMetricsName;
 import io.github.rtib.cmc.model.system_views.CqlMetrics;
 import io.github.rtib.cmc.model.system_views.CqlMetricsName;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Interface of data access to system_views.
@@ -38,6 +40,7 @@ public interface DaoSystemViewsV41 {
      * List the names of batch statements.
      * @return list of batch metric names
      */
+    @StatementAttributes(executionProfileName = "scan")
     @Query("SELECT name FROM system_views.batch_metrics")
     PagingIterable<BatchMetricsName> listBatchStatements();
     
@@ -48,11 +51,20 @@ public interface DaoSystemViewsV41 {
      */
     @Select
     BatchMetrics BatchMetrics(String name);
+    
+    /**
+     * Asynchronously get metrics specific to a given batch statement.
+     * @param name selector value
+     * @return stage completing with the metrics entity
+     */
+    @Select
+    CompletionStage<BatchMetrics> BatchMetricsAsync(String name);
 
     /**
      * List the names of available CQL metrics.
      * @return list of cql metrics
      */
+    @StatementAttributes(executionProfileName = "scan")
     @Query("SELECT name FROM system_views.cql_metrics")
     PagingIterable<CqlMetricsName> listCqlMetrics();
     
@@ -63,4 +75,12 @@ public interface DaoSystemViewsV41 {
      */
     @Select
     CqlMetrics CqlMetrics(String name);
+    
+    /**
+     * Asynchronously get the CqlMetrics for a name.
+     * @param name selector value
+     * @return stage completing with the metrics entity
+     */
+    @Select
+    CompletionStage<CqlMetrics> CqlMetricsAsync(String name);
 }
@@ -15,9 +15,12 @@
  */
 package io.github.rtib.cmc.model;
 
+import com.datastax.oss.driver.api.core.MappedAsyncPagingIterable;
 import com.datastax.oss.driver.api.mapper.annotations.Dao;
 import com.datastax.oss.driver.api.mapper.annotations.Select;
+import com.datastax.oss.driver.api.mapper.annotations.StatementAttributes;
 import io.github.rtib.cmc.model.system_views.MaxSstableSize;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Interface of data access to system_views.
@@ -36,4 +39,21 @@ public interface DaoSystemViewsV5 {
      */
     @Select
     MaxSstableSize MaxSstableSize(String keyspace_name, String table_name);
+    
+    /**
+     * Asynchronously get max sstable size of a table.
+     * @param keyspace_name selector value
+     * @param table_name selector value
+     * @return stage completing with the metrics entity
+     */
+    @Select
+    CompletionStage<MaxSstableSize> MaxSstableSizeAsync(String keyspace_name, String table_name);
+    
+    /**
+     * Asynchronously get max sstable size metrics of all tables.
+     * @return stage completing with the first page of entities
+     */
+    @StatementAttributes(executionProfileName = "scan")
+    @Select
+    CompletionStage<MappedAsyncPagingIterable<MaxSstableSize>> scanMaxSstableSizeAsync();
 }
@@ -15,6 +15,7 @@
  */
 package io.github.rtib.cmc.model;
 
+import com.datastax.oss.driver.api.core.PagingIterable;
 import com.datastax.oss.driver.api.mapper.annotations.Dao;
 import com.datastax.oss.driver.api.mapper.annotations.Select;
 import io.github.rtib.cmc.model.system_virtual_schema.Tables;
@@ -35,4 +36,12 @@ public interface DaoSystemVirtualSchema {
      */
     @Select
     Tables tables(String keyspace_name, String table_name);
+
+    /**
+     * List the Tables entities of all tables within a keyspace.
+     * @param keyspace_name keyspace containing the tables
+     * @return iterable of Tables entities
+     */
+    @Select
+    PagingIterable<Tables> listTables(String keyspace_name);
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public class AdaptiveIntervalTest {
+
+    public AdaptiveIntervalTest() {
+    }
+
+    private static int collections(AdaptiveInterval interval, int cycles, long count) {
+        int collected = 0;
+        for (int i = 0; i < cycles; i++) {
+            if (!interval.skip()) {
+                interval.observe(count);
+                collected++;
+            }
+        }
+        return collected;
+    }
+
+    /**
+     * Idle tables are backed off exponentially up to the cap.
+     */
+    @Test
+    public void testBackoff() {
+        System.out.println("backoff");
+        AdaptiveInterval interval = new AdaptiveInterval(4);
+        // collected on cycles 1, 2, 4, 8, 12, 16
+        assertEquals(6, collections(interval, 16, 42));
+        assertEquals(4, interval.getFactor());
+    }
+
+    /**
+     * A changing counter snaps back to the base interval.
+     */
+    @Test
+    public void testSnapBack() {
+        System.out.println("snap back");
+        AdaptiveInterval interval = new AdaptiveInterval(8);
+        collections(interval, 20, 42);
+        assertEquals(8, interval.getFactor());
+        interval.observe(43);
+        assertEquals(1, interval.getFactor());
+        assertFalse(interval.skip());
+    }
+
+    /**
+     * A cap of one never skips.
+     */
+    @Test
+    public void testDisabled() {
+        System.out.println("disabled");
+        AdaptiveInterval interval = new AdaptiveInterval(1);
+        assertEquals(10, collections(interval, 10, 0));
+    }
+}
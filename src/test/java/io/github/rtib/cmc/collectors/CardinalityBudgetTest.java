@@ -0,0 +1,111 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public class CardinalityBudgetTest {
+
+    public CardinalityBudgetTest() {
+    }
+
+    private static CardinalityBudget<String> newBudget(int limit) {
+        return new CardinalityBudget<>("test", limit, CardinalityBudget.Aggregation.SUM, CardinalityBudget.Aggregation.MAX);
+    }
+
+    /**
+     * Unlimited budgets retain all instances.
+     */
+    @Test
+    public void testUnlimited() {
+        System.out.println("unlimited");
+        CardinalityBudget<String> budget = newBudget(0);
+        for (int i = 0; i < 100; i++)
+            assertTrue(budget.observe("t" + i, 0, 1, 1));
+        assertEquals(0, budget.getFolded());
+    }
+
+    /**
+     * Instances above the limit are folded into the aggregate.
+     */
+    @Test
+    public void testFold() {
+        System.out.println("fold");
+        CardinalityBudget<String> budget = newBudget(2);
+        assertTrue(budget.observe("a", 0, 1, 1));
+        assertTrue(budget.observe("b", 0, 2, 2));
+        assertFalse(budget.observe("c", 0, 3, 3));
+        assertFalse(budget.observe("d", 0, 4, 4));
+        assertArrayEquals(new double[] {7, 4}, budget.getAggregate(), 0);
+        assertFalse(budget.observe("d", 0, 5, 1));
+        assertArrayEquals(new double[] {8, 4}, budget.getAggregate(), 0);
+        assertEquals(2, budget.getFolded());
+        assertEquals(2, budget.getRejections());
+        assertTrue(budget.observe("a", 0, 1, 1));
+    }
+
+    /**
+     * Rebalancing retains the most active instances.
+     */
+    @Test
+    public void testRebalance() {
+        System.out.println("rebalance");
+        CardinalityBudget<String> budget = newBudget(2);
+        budget.observe("a", 1, 1, 1);
+        budget.observe("b", 2, 2, 2);
+        budget.observe("c", 30, 3, 3);
+        budget.observe("d", 40, 4, 4);
+        budget.rebalance();
+        assertEquals(0, budget.getFolded());
+        assertArrayEquals(new double[] {0, 0}, budget.getAggregate(), 0);
+        assertTrue(budget.observe("c", 30, 3, 3));
+        assertTrue(budget.observe("d", 40, 4, 4));
+        assertFalse(budget.observe("a", 1, 1, 1));
+        assertFalse(budget.observe("b", 2, 2, 2));
+        assertArrayEquals(new double[] {3, 2}, budget.getAggregate(), 0);
+        budget.remove("b");
+        assertArrayEquals(new double[] {1, 1}, budget.getAggregate(), 0);
+    }
+
+    /**
+     * Counter aggregates sum increments and never decrease.
+     */
+    @Test
+    public void testCounter() {
+        System.out.println("counter");
+        CardinalityBudget<String> budget = new CardinalityBudget<>("test", 1, CardinalityBudget.Aggregation.COUNTER);
+        assertTrue(budget.observe("a", 0, 100));
+        assertFalse(budget.observe("b", 0, 100));
+        assertFalse(budget.observe("c", 0, 50));
+        assertArrayEquals(new double[] {0}, budget.getAggregate(), 0);
+        assertFalse(budget.observe("b", 0, 110));
+        assertFalse(budget.observe("c", 0, 5));
+        assertArrayEquals(new double[] {15}, budget.getAggregate(), 0);
+        budget.remove("b");
+        assertArrayEquals(new double[] {15}, budget.getAggregate(), 0);
+        budget.observe("c", 10, 7);
+        budget.rebalance();
+        assertArrayEquals(new double[] {17}, budget.getAggregate(), 0);
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.collectors;
+
+import io.github.rtib.cmc.metrics.MetricException;
+import io.github.rtib.cmc.metrics.Repository;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.After;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public class HashedWheelSchedulerTest {
+
+    private ScheduledThreadPoolExecutor executor;
+    private HashedWheelScheduler scheduler;
+
+    public HashedWheelSchedulerTest() {
+    }
+
+    @Before
+    public void setUp() throws MetricException {
+        executor = new ScheduledThreadPoolExecutor(1);
+        scheduler = new HashedWheelScheduler(executor, new PhasePlanner(Duration.ofSeconds(8), Collections.emptyList()), Duration.ofSeconds(1), 8);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private void ticks(int n) throws InterruptedException {
+        for (int i = 0; i < n; i++)
+            scheduler.tick();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    private static Supplier<CompletionStage<Void>> count(AtomicInteger counter) {
+        return () -> {
+            counter.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        };
+    }
+
+    private void drain() throws Exception {
+        // the single thread executes in order of submission
+        executor.submit(() -> {}).get();
+    }
+
+    /**
+     * Test of fixed rate dispatching, including intervals exceeding the wheel.
+     */
+    @Test
+    public void testSchedule() throws InterruptedException {
+        System.out.println("schedule");
+        AtomicInteger shortInterval = new AtomicInteger();
+        AtomicInteger longInterval = new AtomicInteger();
+        scheduler.schedule(this, count(shortInterval), Duration.ofSeconds(0), Duration.ofSeconds(3));
+        scheduler.schedule(this, count(longInterval), Duration.ofSeconds(2), Duration.ofSeconds(20));
+        ticks(40);
+        // due on ticks 3, 6, 9, ..., 39
+        assertEquals(13, shortInterval.get());
+        // due on ticks 2, 22
+        assertEquals(2, longInterval.get());
+    }
+
+    /**
+     * Test of cancel method, of class HashedWheelScheduler.Timeout.
+     */
+    @Test
+    public void testCancel() throws InterruptedException {
+        System.out.println("cancel");
+        AtomicInteger counter = new AtomicInteger();
+        HashedWheelScheduler.Timeout timeout = scheduler.schedule(this, count(counter), Duration.ofSeconds(1), Duration.ofSeconds(1));
+        for (int i = 0; i < 3; i++)
+            scheduler.tick();
+        timeout.cancel();
+        ticks(10);
+        assertTrue(timeout.isCancelled());
+        assertEquals(3, counter.get());
+    }
+
+    /**
+     * A failing task must neither stop other tasks of its batch nor its own
+     * rescheduling.
+     */
+    @Test
+    public void testFailingTask() throws InterruptedException {
+        System.out.println("failing task");
+        AtomicInteger counter = new AtomicInteger();
+        scheduler.schedule(this, () -> { throw new IllegalStateException("test"); }, Duration.ZERO, Duration.ofSeconds(1));
+        scheduler.schedule(this, count(counter), Duration.ZERO, Duration.ofSeconds(1));
+        ticks(5);
+        assertEquals(5, counter.get());
+    }
+
+    /**
+     * The epoch is advanced once per collection cycle, after the stages of
+     * all tasks dispatched within the cycle completed.
+     */
+    @Test
+    public void testEpoch() throws Exception {
+        System.out.println("epoch");
+        CompletableFuture<Void> query = new CompletableFuture<>();
+        for (int i = 0; i < 4; i++)
+            scheduler.schedule(this, () -> query, Duration.ofSeconds(i), Duration.ofSeconds(4));
+        long epoch = Repository.getInstance().getEpoch();
+        // cycles of ticks 0-3 and 4-7 end on ticks 4 and 8, tick 9 opens the next
+        for (int i = 0; i < 9; i++)
+            scheduler.tick();
+        drain();
+        assertEquals(epoch, Repository.getInstance().getEpoch());
+        query.complete(null);
+        drain();
+        assertEquals(epoch + 2, Repository.getInstance().getEpoch());
+    }
+
+    /**
+     * Offsets are anchored to the origin of the wheel, tasks registered at
+     * different times keep the distance of their offsets.
+     */
+    @Test
+    public void testAnchored() throws Exception {
+        System.out.println("anchored");
+        AtomicInteger tick = new AtomicInteger();
+        List<Integer> first = new CopyOnWriteArrayList<>();
+        List<Integer> second = new CopyOnWriteArrayList<>();
+        scheduler.schedule(this, record(first, tick), Duration.ofSeconds(2), Duration.ofSeconds(4));
+        for (int i = 0; i < 5; i++)
+            tickAndDrain(tick);
+        scheduler.schedule(this, record(second, tick), Duration.ofSeconds(3), Duration.ofSeconds(4));
+        for (int i = 0; i < 8; i++)
+            tickAndDrain(tick);
+        assertEquals(List.of(2, 6, 10), first);
+        assertEquals(List.of(7, 11), second);
+    }
+
+    /**
+     * Tasks registered within a tick are planned independent of the order of
+     * their registration.
+     */
+    @Test
+    public void testPlanningOrder() throws MetricException {
+        System.out.println("planning order");
+        List<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            keys.add(i);
+        double[] sorted = plan(keys);
+        Collections.shuffle(keys, new Random(42));
+        assertArrayEquals(sorted, plan(keys), 0.001);
+    }
+
+    private double[] plan(List<Integer> keys) throws MetricException {
+        PhasePlanner planner = new PhasePlanner(Duration.ofSeconds(4), Collections.emptyList());
+        HashedWheelScheduler planned = new HashedWheelScheduler(executor, planner, Duration.ofSeconds(1), 8);
+        for (int key : keys)
+            planned.schedule(this, "task" + key, () -> CompletableFuture.completedFuture(null), Duration.ofSeconds(4), () -> key + 1);
+        planned.tick();
+        return planner.getHistogram();
+    }
+
+    private void tickAndDrain(AtomicInteger tick) throws Exception {
+        tick.incrementAndGet();
+        scheduler.tick();
+        drain();
+    }
+
+    private static Supplier<CompletionStage<Void>> record(List<Integer> ticks, AtomicInteger tick) {
+        return () -> {
+            ticks.add(tick.get());
+            return CompletableFuture.completedFuture(null);
+        };
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.collectors;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public class LoadGovernorTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final List<String> started = new ArrayList<>();
+    private final List<CompletableFuture<String>> pending = new ArrayList<>();
+    private ScheduledThreadPoolExecutor executor;
+
+    public LoadGovernorTest() {
+    }
+
+    @Before
+    public void setUp() {
+        executor = new ScheduledThreadPoolExecutor(1);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private LoadGovernor governor(double rate, int burst, int maxInFlight) {
+        return new LoadGovernor(executor, rate, burst, maxInFlight, 100, Duration.ofMillis(100), clock::get);
+    }
+
+    private CompletionStage<String> submit(LoadGovernor governor, LoadGovernor.Priority priority, String name) {
+        return governor.submit(priority, () -> {
+            started.add(name);
+            CompletableFuture<String> query = new CompletableFuture<>();
+            pending.add(query);
+            return query;
+        });
+    }
+
+    /**
+     * Queries in flight are capped, waiting node queries are admitted first.
+     */
+    @Test
+    public void testPriority() {
+        System.out.println("priority");
+        LoadGovernor governor = governor(1000, 1000, 1);
+        submit(governor, LoadGovernor.Priority.NODE, "first");
+        submit(governor, LoadGovernor.Priority.TABLE, "table");
+        submit(governor, LoadGovernor.Priority.NODE, "node");
+        assertEquals(List.of("first"), started);
+        assertEquals(1, governor.getInFlight());
+        pending.get(0).complete("done");
+        assertEquals(List.of("first", "node"), started);
+        pending.get(1).complete("done");
+        assertEquals(List.of("first", "node", "table"), started);
+    }
+
+    /**
+     * Queries are started at most at the rate of the token bucket.
+     */
+    @Test
+    public void testRate() {
+        System.out.println("rate");
+        LoadGovernor governor = governor(1, 2, 10);
+        for (int i = 0; i < 4; i++)
+            submit(governor, LoadGovernor.Priority.NODE, "q" + i);
+        assertEquals(2, started.size());
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        governor.drain();
+        assertEquals(3, started.size());
+    }
+
+    /**
+     * Table queries are shed while the response time exceeds the threshold,
+     * except a probe per second.
+     */
+    @Test
+    public void testShedding() {
+        System.out.println("shedding");
+        LoadGovernor governor = governor(1000, 1000, 10);
+        CompletionStage<String> slow = submit(governor, LoadGovernor.Priority.NODE, "slow");
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        pending.get(0).complete("done");
+        assertEquals("done", slow.toCompletableFuture().join());
+        assertTrue(governor.isShedding());
+
+        CompletableFuture<String> shed = submit(governor, LoadGovernor.Priority.TABLE, "shed").toCompletableFuture();
+        assertTrue(shed.isCompletedExceptionally());
+        try {
+            shed.join();
+        } catch (RuntimeException ex) {
+            assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        }
+        submit(governor, LoadGovernor.Priority.NODE, "node");
+        assertEquals(List.of("slow", "node"), started);
+
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        submit(governor, LoadGovernor.Priority.TABLE, "probe");
+        assertEquals(List.of("slow", "node", "probe"), started);
+        pending.get(2).complete("done");
+        for (int i = 0; i < 10 && governor.isShedding(); i++) {
+            submit(governor, LoadGovernor.Priority.NODE, "fast" + i);
+            pending.get(pending.size() - 1).complete("done");
+        }
+        assertFalse(governor.isShedding());
+    }
+
+    /**
+     * Unmeasured queries, like long scans, don't cause shedding.
+     */
+    @Test
+    public void testUnmeasured() {
+        System.out.println("unmeasured");
+        LoadGovernor governor = governor(1000, 1000, 10);
+        governor.submit(LoadGovernor.Priority.TABLE, false, () -> {
+            CompletableFuture<String> query = new CompletableFuture<>();
+            pending.add(query);
+            return query;
+        });
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        pending.get(0).complete("done");
+        assertFalse(governor.isShedding());
+    }
+
+    /**
+     * Rejected queries are counted per priority.
+     */
+    @Test
+    public void testRejections() {
+        System.out.println("rejections");
+        LoadGovernor governor = new LoadGovernor(executor, 1000, 1000, 1, 1, Duration.ofMillis(100), clock::get);
+        submit(governor, LoadGovernor.Priority.TABLE, "running");
+        submit(governor, LoadGovernor.Priority.TABLE, "queued");
+        CompletableFuture<String> rejected = submit(governor, LoadGovernor.Priority.TABLE, "rejected").toCompletableFuture();
+        assertTrue(rejected.isCompletedExceptionally());
+        assertEquals(1, governor.getRejections(LoadGovernor.Priority.TABLE));
+        assertEquals(0, governor.getRejections(LoadGovernor.Priority.NODE));
+    }
+
+    /**
+     * Queued queries rejected are completed outside of the lock.
+     */
+    @Test
+    public void testRejectedOutsideLock() {
+        System.out.println("rejectedOutsideLock");
+        LoadGovernor governor = governor(1000, 1000, 1);
+        submit(governor, LoadGovernor.Priority.NODE, "slow");
+        CompletableFuture<String> queued = submit(governor, LoadGovernor.Priority.TABLE, "queued").toCompletableFuture();
+        AtomicBoolean locked = new AtomicBoolean(true);
+        queued.whenComplete((value, ex) -> locked.set(Thread.holdsLock(governor)));
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        pending.get(0).complete("done");
+        assertTrue(queued.isCompletedExceptionally());
+        assertFalse(locked.get());
+    }
+
+    /**
+     * The unlimited governor starts all queries at once.
+     */
+    @Test
+    public void testUnlimited() {
+        System.out.println("unlimited");
+        LoadGovernor governor = LoadGovernor.unlimited();
+        for (int i = 0; i < 100; i++)
+            submit(governor, LoadGovernor.Priority.TABLE, "q" + i);
+        assertEquals(100, started.size());
+        assertEquals(0, governor.getRejections(LoadGovernor.Priority.TABLE));
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.collectors;
+
+import io.github.rtib.cmc.metrics.MetricException;
+import io.github.rtib.cmc.model.system_schema.TableName;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public class PhasePlannerTest {
+
+    private final Duration interval = Duration.ofSeconds(60);
+    private PhasePlanner planner;
+
+    public PhasePlannerTest() {
+    }
+
+    @Before
+    public void setUp() throws MetricException {
+        planner = new PhasePlanner(interval, Collections.emptyList());
+    }
+
+    /**
+     * Offsets are deterministic and within the interval.
+     */
+    @Test
+    public void testOffset() throws MetricException {
+        System.out.println("offset");
+        TableName table = new TableName("ks", "tab");
+        Duration offset = planner.offset(this, table, interval);
+        assertEquals(offset, new PhasePlanner(interval, Collections.emptyList()).offset(this, new TableName("ks", "tab"), interval));
+        assertTrue(offset.toSeconds() >= 0 && offset.toSeconds() < 60);
+    }
+
+    /**
+     * Many tasks are spread evenly across the window, releasing them clears
+     * the histogram.
+     */
+    @Test
+    public void testSpread() {
+        System.out.println("spread");
+        for (int i = 0; i < 6000; i++)
+            planner.plan(this, new TableName("ks", "tab" + i), interval, 1);
+        double[] histogram = planner.getHistogram();
+        assertEquals(6000, Arrays.stream(histogram).sum(), 0.001);
+        assertEquals(100, Arrays.stream(histogram).max().getAsDouble(), 0.001);
+        assertEquals(100, Arrays.stream(histogram).min().getAsDouble(), 0.001);
+        for (int i = 0; i < 6000; i++)
+            planner.release(this, new TableName("ks", "tab" + i));
+        assertEquals(0, Arrays.stream(planner.getHistogram()).sum(), 0.001);
+    }
+
+    /**
+     * Tasks are accounted on every execution within the window.
+     */
+    @Test
+    public void testShortInterval() {
+        System.out.println("short interval");
+        Duration offset = planner.plan(this, "task", Duration.ofSeconds(20), 2);
+        double[] histogram = planner.getHistogram();
+        assertEquals(6, Arrays.stream(histogram).sum(), 0.001);
+        assertEquals(2, histogram[(int) offset.toSeconds() + 20], 0.001);
+        assertTrue(planner.getMetric().toString().contains("second=\"" + (offset.toSeconds() + 40) + "\"} 2.0"));
+    }
+
+    /**
+     * Heavy tasks are planned apart, their weight accounted on release.
+     */
+    @Test
+    public void testWeight() {
+        System.out.println("weight");
+        Duration first = planner.plan(this, "bulk1", interval, 500);
+        Duration second = planner.plan(this, "bulk2", interval, 500);
+        assertTrue(!first.equals(second));
+        for (int i = 0; i < 118; i++)
+            planner.plan(this, "task" + i, interval, 1);
+        double[] histogram = planner.getHistogram();
+        assertEquals(500, histogram[(int) first.toSeconds()], 0.001);
+        assertEquals(500, histogram[(int) second.toSeconds()], 0.001);
+        planner.release(this, "bulk1");
+        assertEquals(0, planner.getHistogram()[(int) first.toSeconds()], 0.001);
+    }
+
+    /**
+     * Reweighing keeps the offset of a task and accounts the difference.
+     */
+    @Test
+    public void testReweigh() {
+        System.out.println("reweigh");
+        assertTrue(!planner.reweigh(this, "bulk", 10));
+        Duration offset = planner.plan(this, "bulk", interval, 10);
+        assertTrue(planner.reweigh(this, "bulk", 25));
+        assertEquals(25, planner.getHistogram()[(int) offset.toSeconds()], 0.001);
+        assertEquals(25, Arrays.stream(planner.getHistogram()).sum(), 0.001);
+        planner.release(this, "bulk");
+        assertEquals(0, Arrays.stream(planner.getHistogram()).sum(), 0.001);
+    }
+}
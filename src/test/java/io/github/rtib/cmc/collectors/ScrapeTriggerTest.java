@@ -0,0 +1,127 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.collectors;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public class ScrapeTriggerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private FakeCollector collector;
+    private ScrapeTrigger trigger;
+
+    public ScrapeTriggerTest() {
+    }
+
+    @Before
+    public void setUp() {
+        collector = new FakeCollector();
+        trigger = new ScrapeTrigger(List.of(collector), Duration.ofSeconds(15), Duration.ofSeconds(10), clock::get);
+    }
+
+    /**
+     * Concurrent scrapes share the collection cycle in flight.
+     */
+    @Test
+    public void testSingleFlight() {
+        System.out.println("single flight");
+        CompletableFuture<Void> first = trigger.refresh();
+        CompletableFuture<Void> second = trigger.refresh();
+        assertSame(first, second);
+        assertFalse(first.isDone());
+        assertEquals(1, collector.cycles);
+        collector.pending.complete(null);
+        assertTrue(first.isDone());
+    }
+
+    /**
+     * Scrapes within the freshness window don't trigger a new cycle.
+     */
+    @Test
+    public void testFreshness() {
+        System.out.println("freshness");
+        collector.pending.complete(null);
+        assertTrue(trigger.refresh().isDone());
+        clock.addAndGet(Duration.ofSeconds(14).toNanos());
+        assertTrue(trigger.refresh().isDone());
+        assertEquals(1, collector.cycles);
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        trigger.refresh();
+        assertEquals(2, collector.cycles);
+    }
+
+    /**
+     * A failing collector doesn't block subsequent cycles.
+     */
+    @Test
+    public void testFailedCycle() {
+        System.out.println("failed cycle");
+        collector.pending.completeExceptionally(new IllegalStateException("test"));
+        assertTrue(trigger.refresh().isDone());
+        clock.addAndGet(Duration.ofSeconds(15).toNanos());
+        collector.pending = new CompletableFuture<>();
+        assertFalse(trigger.refresh().isDone());
+        assertEquals(2, collector.cycles);
+    }
+
+    private static class FakeCollector implements ICollector {
+        private CompletableFuture<Void> pending = new CompletableFuture<>();
+        private int cycles = 0;
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public boolean isActive() {
+            return true;
+        }
+
+        @Override
+        public void activate() {
+        }
+
+        @Override
+        public void deactivate() {
+        }
+
+        @Override
+        public CompletionStage<Void> collect() {
+            cycles++;
+            return pending;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.collectors;
+
+import io.github.rtib.cmc.model.system_schema.TableName;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public class TableCatalogTest {
+
+    private final TableName tab1 = new TableName("ks", "tab1");
+    private final TableName tab2 = new TableName("ks", "tab2");
+    private final TableName tab3 = new TableName("ks", "tab3");
+    private TableCatalog catalog;
+    private RecordingListener listener;
+
+    public TableCatalogTest() {
+    }
+
+    @Before
+    public void setUp() {
+        catalog = new TableCatalog();
+        listener = new RecordingListener();
+    }
+
+    /**
+     * Subscribers are notified about the tables already known.
+     */
+    @Test
+    public void testSubscribe() {
+        System.out.println("subscribe");
+        catalog.reconcile(List.of(tab1, tab2));
+        catalog.subscribe(listener);
+        assertEquals(Set.of(tab1, tab2), Set.copyOf(listener.added));
+        assertTrue(listener.removed.isEmpty());
+    }
+
+    /**
+     * Reconciling notifies about the difference only.
+     */
+    @Test
+    public void testReconcile() {
+        System.out.println("reconcile");
+        catalog.subscribe(listener);
+        catalog.reconcile(List.of(tab1, tab2));
+        listener.added.clear();
+        catalog.reconcile(List.of(tab2, tab3));
+        assertEquals(List.of(tab3), listener.added);
+        assertEquals(List.of(tab1), listener.removed);
+        assertEquals(Set.of(tab2, tab3), catalog.getTables());
+    }
+
+    /**
+     * Unsubscribed listeners are not notified anymore.
+     */
+    @Test
+    public void testUnsubscribe() {
+        System.out.println("unsubscribe");
+        catalog.subscribe(listener);
+        catalog.unsubscribe(listener);
+        catalog.reconcile(List.of(tab1));
+        assertTrue(listener.added.isEmpty());
+    }
+
+    /**
+     * Removing a keyspace removes all of its tables.
+     */
+    @Test
+    public void testRemoveKeyspace() {
+        System.out.println("removeKeyspace");
+        TableName other = new TableName("other", "tab1");
+        catalog.reconcile(List.of(tab1, tab2, other));
+        catalog.subscribe(listener);
+        catalog.removeKeyspace("ks");
+        assertEquals(Set.of(tab1, tab2), Set.copyOf(listener.removed));
+        assertEquals(Set.of(other), catalog.getTables());
+    }
+
+    private static class RecordingListener implements TableCatalog.Listener {
+        private final List<TableName> added = new ArrayList<>();
+        private final List<TableName> removed = new ArrayList<>();
+
+        @Override
+        public void tableAdded(TableName table) {
+            added.add(table);
+        }
+
+        @Override
+        public void tableRemoved(TableName table) {
+            removed.add(table);
+        }
+    }
+}
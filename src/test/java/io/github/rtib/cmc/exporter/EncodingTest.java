@@ -0,0 +1,78 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.exporter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public class EncodingTest {
+
+    public EncodingTest() {
+    }
+
+    /**
+     * Test of negotiate method, of class Encoding.
+     */
+    @Test
+    public void testNegotiate() {
+        System.out.println("negotiate");
+        assertEquals(Encoding.IDENTITY, Encoding.negotiate(null));
+        assertEquals(Encoding.IDENTITY, Encoding.negotiate("br"));
+        assertEquals(Encoding.GZIP, Encoding.negotiate("gzip"));
+        assertEquals(Encoding.GZIP, Encoding.negotiate("deflate, gzip"));
+        assertEquals(Encoding.DEFLATE, Encoding.negotiate("deflate"));
+        assertEquals(Encoding.DEFLATE, Encoding.negotiate("gzip;q=0.5, deflate"));
+        assertEquals(Encoding.IDENTITY, Encoding.negotiate("gzip;q=0"));
+        assertEquals(Encoding.GZIP, Encoding.negotiate("*"));
+        assertEquals(Encoding.DEFLATE, Encoding.negotiate("gzip;q=0, *"));
+    }
+
+    /**
+     * Test of encode method, of class Encoding.
+     */
+    @Test
+    public void testEncode() throws IOException {
+        System.out.println("encode");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++)
+            sb.append("cassandra_table_size{keyspace=\"ks\",table=\"t").append(i).append("\"} ").append(i * 1000.0).append(" 1700000000000\n");
+        byte[] body = sb.toString().getBytes(StandardCharsets.UTF_8);
+        assertSame(body, Encoding.IDENTITY.encode(body));
+        byte[] gzip = Encoding.GZIP.encode(body);
+        byte[] deflate = Encoding.DEFLATE.encode(body);
+        assertTrue(gzip.length * 5 < body.length);
+        assertTrue(deflate.length * 5 < body.length);
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            assertArrayEquals(body, in.readAllBytes());
+        }
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(deflate))) {
+            assertArrayEquals(body, in.readAllBytes());
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.exporter;
+
+import io.github.rtib.cmc.collectors.HashedWheelScheduler;
+import io.github.rtib.cmc.collectors.PhasePlanner;
+import io.github.rtib.cmc.metrics.ExpositionFormat;
+import io.github.rtib.cmc.metrics.LabelListBuilder;
+import io.github.rtib.cmc.metrics.Metric;
+import io.github.rtib.cmc.metrics.MetricException;
+import io.github.rtib.cmc.metrics.Repository;
+import io.github.rtib.cmc.metrics.SeriesHandle;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public class ScrapeCacheTest {
+
+    private static final String QUERY = "prefix=scrape_cache_test_";
+    private final Repository repo = Repository.getInstance();
+    private final ScrapeCache cache = ScrapeCache.getInstance();
+    private Metric metric;
+    private SeriesHandle handle;
+
+    public ScrapeCacheTest() {
+    }
+
+    @Before
+    public void setUp() throws MetricException {
+        metric = new Metric.Builder()
+                .withName("scrape_cache_test_size")
+                .withHelp("test")
+                .build();
+        handle = metric.addInstance(new LabelListBuilder().addLabel("table", "a").build());
+        metric.setValue(handle, 1);
+        repo.add(metric);
+    }
+
+    @After
+    public void tearDown() {
+        repo.remove(metric);
+    }
+
+    /**
+     * Unmodified metrics are served from the cache.
+     */
+    @Test
+    public void testHit() throws IOException {
+        System.out.println("hit");
+        byte[] first = cache.get(QUERY);
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+        assertSame(first, cache.get(QUERY));
+        assertSame(first, cache.get(QUERY));
+        assertEquals(hits + 2, cache.getHits());
+        assertEquals(misses, cache.getMisses());
+        assertTrue(new String(first, StandardCharsets.UTF_8).contains("scrape_cache_test_size{table=\"a\"} 1.0 "));
+    }
+
+    /**
+     * Compressed bodies are cached along with the rendered one.
+     */
+    @Test
+    public void testEncoded() throws IOException {
+        System.out.println("encoded");
+        byte[] gzip = cache.get(QUERY, ExpositionFormat.TEXT, Encoding.GZIP);
+        long misses = cache.getMisses();
+        assertSame(gzip, cache.get(QUERY, ExpositionFormat.TEXT, Encoding.GZIP));
+        assertSame(cache.get(QUERY, ExpositionFormat.TEXT, Encoding.DEFLATE), cache.get(QUERY, ExpositionFormat.TEXT, Encoding.DEFLATE));
+        assertNotSame(gzip, cache.get(QUERY));
+        assertEquals(misses, cache.getMisses());
+        metric.setValue(handle, 3);
+        repo.advanceEpoch();
+        assertNotSame(gzip, cache.get(QUERY, ExpositionFormat.TEXT, Encoding.GZIP));
+    }
+
+    /**
+     * Samples written within an epoch are served from the cache, advancing
+     * the epoch and adding metrics invalidate it.
+     */
+    @Test
+    public void testInvalidation() throws IOException, MetricException {
+        System.out.println("invalidation");
+        byte[] first = cache.get(QUERY);
+        long misses = cache.getMisses();
+        metric.setValue(handle, 2);
+        assertSame(first, cache.get(QUERY));
+        repo.advanceEpoch();
+        byte[] second = cache.get(QUERY);
+        assertNotSame(first, second);
+        assertTrue(new String(second, StandardCharsets.UTF_8).contains("scrape_cache_test_size{table=\"a\"} 2.0 "));
+        metric.addInstance(new LabelListBuilder().addLabel("table", "b").build());
+        repo.advanceEpoch();
+        assertNotSame(second, cache.get(QUERY));
+        Metric other = new Metric.Builder()
+                .withName("scrape_cache_test_count")
+                .withHelp("test")
+                .build();
+        repo.add(other);
+        try {
+            assertTrue(new String(cache.get(QUERY), StandardCharsets.UTF_8).contains("# HELP scrape_cache_test_count test"));
+        } finally {
+            repo.remove(other);
+        }
+        assertEquals(misses + 3, cache.getMisses());
+    }
+
+    /**
+     * Scrapes within a collection interval hit the cache, while the per table
+     * tasks of the interval are dispatched tick by tick.
+     */
+    @Test
+    public void testScheduled() throws IOException, MetricException, InterruptedException {
+        System.out.println("scheduled");
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        HashedWheelScheduler scheduler = new HashedWheelScheduler(executor, new PhasePlanner(Duration.ofSeconds(1), List.of()), Duration.ofMillis(10), 64);
+        try {
+            for (int i = 0; i < 100; i++) {
+                SeriesHandle table = metric.addInstance(new LabelListBuilder().addLabel("table", "t" + i).build());
+                scheduler.schedule(this, () -> {
+                    metric.setValue(table, Math.random());
+                    return CompletableFuture.completedFuture(null);
+                }, Duration.ofMillis(10 * i), Duration.ofSeconds(1));
+            }
+            long epoch = repo.getEpoch();
+            scheduler.start();
+            for (int i = 0; i < 400 && repo.getEpoch() == epoch; i++)
+                Thread.sleep(5);
+            assertNotEquals(epoch, repo.getEpoch());
+            byte[] first = cache.get(QUERY);
+            long hits = cache.getHits();
+            Thread.sleep(100);
+            assertSame(first, cache.get(QUERY));
+            assertEquals(hits + 1, cache.getHits());
+        } finally {
+            scheduler.stop();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Counting hits of the exported cache metric doesn't invalidate the cache.
+     */
+    @Test
+    public void testOwnMetric() throws IOException, MetricException {
+        System.out.println("ownMetric");
+        Metric own = cache.createMetric(List.of());
+        repo.add(own);
+        try {
+            byte[] first = cache.get(null);
+            assertSame(first, cache.get(null));
+            assertSame(first, cache.get(""));
+        } finally {
+            repo.remove(own);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.metrics;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public class ExpositionFormatTest {
+
+    public ExpositionFormatTest() {
+    }
+
+    /**
+     * Test of negotiate method, of class ExpositionFormat.
+     */
+    @Test
+    public void testNegotiate() {
+        System.out.println("negotiate");
+        assertEquals(ExpositionFormat.TEXT, ExpositionFormat.negotiate(null));
+        assertEquals(ExpositionFormat.TEXT, ExpositionFormat.negotiate("*/*"));
+        assertEquals(ExpositionFormat.TEXT, ExpositionFormat.negotiate("text/plain;version=0.0.4"));
+        assertEquals(ExpositionFormat.OPENMETRICS, ExpositionFormat.negotiate(
+                "application/openmetrics-text;version=1.0.0,application/openmetrics-text;version=0.0.1;q=0.75,text/plain;version=0.0.4;q=0.5,*/*;q=0.1"));
+        assertEquals(ExpositionFormat.TEXT, ExpositionFormat.negotiate(
+                "application/openmetrics-text;version=1.0.0;q=0.2,text/plain;version=0.0.4;q=0.5"));
+        assertEquals(ExpositionFormat.PROTOBUF, ExpositionFormat.negotiate(
+                "application/vnd.google.protobuf;proto=io.prometheus.client.MetricFamily;encoding=delimited;q=0.7,text/plain;version=0.0.4;q=0.3,*/*;q=0.2"));
+        assertEquals(ExpositionFormat.TEXT, ExpositionFormat.negotiate(
+                "application/vnd.google.protobuf;proto=io.prometheus.client.MetricFamily;encoding=text;q=0.7,text/plain;version=0.0.4;q=0.3"));
+        assertEquals(ExpositionFormat.TEXT, ExpositionFormat.negotiate("application/vnd.google.protobuf"));
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public class LabelRegistryTest {
+
+    public LabelRegistryTest() {
+    }
+
+    /**
+     * Test of label method, of class LabelRegistry.
+     */
+    @Test
+    public void testLabel() throws MetricException {
+        System.out.println("label");
+        LabelRegistry registry = LabelRegistry.getInstance();
+        Label first = registry.label("keyspace", "registry_test");
+        long hits = registry.getHits();
+        Label second = registry.label("keyspace", "registry_test");
+        assertSame(first, second);
+        assertEquals(hits + 1, registry.getHits());
+    }
+
+    /**
+     * Test of label method with invalid names, of class LabelRegistry.
+     */
+    @Test(expected = MetricException.class)
+    public void testLabelInvalid() throws MetricException {
+        System.out.println("labelInvalid");
+        LabelRegistry.getInstance().label("__keyspace", "registry_test");
+    }
+
+    /**
+     * Test of label method without value, of class LabelRegistry.
+     */
+    @Test
+    public void testLabelNull() throws MetricException {
+        System.out.println("labelNull");
+        LabelRegistry registry = LabelRegistry.getInstance();
+        Label first = registry.label("keyspace", null);
+        assertNull(first.value());
+        assertSame(first, registry.label("keyspace", null));
+        assertNotSame(first, registry.label("keyspace", ""));
+    }
+
+    /**
+     * Test of intern method, of class LabelRegistry.
+     */
+    @Test
+    public void testIntern() throws MetricException {
+        System.out.println("intern");
+        List<Label> first = new LabelListBuilder()
+                .addLabel("keyspace", "registry_test")
+                .addLabel("table", "interned")
+                .build();
+        List<Label> second = new LabelListBuilder()
+                .addLabel("keyspace", "registry_test")
+                .addLabel("table", "interned")
+                .build();
+        assertSame(first, second);
+        assertSame(first.get(0), second.get(0));
+    }
+
+    /**
+     * Test of createMetric method, of class LabelRegistry.
+     */
+    @Test
+    public void testCreateMetric() throws MetricException {
+        System.out.println("createMetric");
+        LabelRegistry registry = LabelRegistry.getInstance();
+        Metric metric = registry.createMetric(List.of());
+        registry.label("keyspace", "registry_test");
+        registry.export();
+        String result = metric.getInstances();
+        assertTrue(result.contains("cql_metrics_collector_label_interning{result=\"hit\"} " + (double) registry.getHits()));
+    }
+
+    /**
+     * Labels and lists not used anymore are dropped from the registry.
+     */
+    @Test
+    public void testRelease() throws MetricException, InterruptedException {
+        System.out.println("release");
+        LabelRegistry registry = LabelRegistry.getInstance();
+        int before = registry.size();
+        List<List<Label>> used = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            used.add(new LabelListBuilder().addLabel("table", "released_" + i).build());
+        assertTrue(registry.size() >= before + 200);
+        used = null;
+        for (int i = 0; i < 50 && registry.size() >= before + 200; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertTrue(registry.size() < before + 200);
+    }
+}
@@ -15,10 +15,16 @@
  */
 package io.github.rtib.cmc.metrics;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
 import org.junit.After;
 import org.junit.AfterClass;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -175,4 +181,48 @@ public class MetricTest {
         String result = instance.toString();
         assertEquals(expResult, result);
     }
+
+    /**
+     * Test of setValue method by SeriesHandle, of class Metric.
+     */
+    @Test
+    public void testSetValueByHandle() {
+        System.out.println("setValueByHandle");
+        Metric instance = this.testMetric1;
+        SeriesHandle handle = instance.addInstance(this.testLabels1);
+        instance.setValue(handle, 42);
+        String expResult = 
+                "test_metric_1{purpose=\"test\",number=\"1\",keyspace=\"test\",table=\"tab1\"} 42.0 " +
+                System.currentTimeMillis() +
+                "\n";
+        assertEquals(expResult, instance.getInstances());
+        instance.removeInstance(this.testLabels1);
+        instance.setValue(handle, 43);
+        assertEquals("", instance.getInstances());
+    }
+
+    /**
+     * Test of writeRates method, of class Metric.
+     */
+    @Test
+    public void testWriteRates() throws MetricException, IOException {
+        System.out.println("writeRates");
+        Metric metric = new Metric.Builder()
+                .withName("metric_test_requests")
+                .withHelp("test")
+                .withType(MetricType.COUNTER)
+                .withHistory(Duration.ofHours(1))
+                .build();
+        SeriesHistory history = metric.getHistory(metric.addInstance(new LabelListBuilder().addLabel("table", "a").build()));
+        history.append(0, 100);
+        history.append(10_000, 150);
+        history.append(20_000, 250);
+        metric.addInstance(new LabelListBuilder().addLabel("table", "b").build());
+        assertTrue(metric.hasHistory());
+        assertFalse(testMetric1.hasHistory());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        metric.writeType(out, MetricType.GAUGE);
+        metric.writeRates(out, 10_000, Long.MAX_VALUE);
+        assertEquals("# TYPE metric_test_requests gauge\nmetric_test_requests{table=\"a\"} 10.0\n", out.toString(StandardCharsets.UTF_8));
+    }
 }
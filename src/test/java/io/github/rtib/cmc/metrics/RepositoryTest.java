@@ -0,0 +1,108 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.metrics;
+
+import java.util.List;
+import java.util.regex.Pattern;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public class RepositoryTest {
+
+    private final Repository repo = Repository.getInstance();
+    private Metric read;
+    private Metric write;
+    private Metric size;
+
+    public RepositoryTest() {
+    }
+
+    private static Metric newMetric(String name) throws MetricException {
+        return new Metric.Builder()
+                .withName(name)
+                .withHelp("test")
+                .build();
+    }
+
+    @Before
+    public void setUp() throws MetricException {
+        write = newMetric("repository_test_latency_write");
+        read = newMetric("repository_test_latency_read");
+        size = newMetric("repository_test_size");
+        repo.add(write);
+        repo.add(read);
+        repo.add(size);
+    }
+
+    @After
+    public void tearDown() {
+        repo.remove(read);
+        repo.remove(write);
+        repo.remove(size);
+    }
+
+    /**
+     * Test of get method, of class Repository.
+     */
+    @Test
+    public void testGet() {
+        System.out.println("get");
+        assertSame(read, repo.get("repository_test_latency_read"));
+        assertNull(repo.get("repository_test_latency"));
+    }
+
+    /**
+     * Test of selectByPrefix method, of class Repository.
+     */
+    @Test
+    public void testSelectByPrefix() {
+        System.out.println("selectByPrefix");
+        assertEquals(List.of(read, write), repo.selectByPrefix("repository_test_latency"));
+        assertEquals(List.of(read, write, size), repo.selectByPrefix("repository_test_"));
+        assertEquals(List.of(), repo.selectByPrefix("repository_test_x"));
+    }
+
+    /**
+     * Test of select method, of class Repository.
+     */
+    @Test
+    public void testSelect() {
+        System.out.println("select");
+        assertEquals(List.of(write, size), repo.select(Pattern.compile("repository_test_(.*write|size)")));
+    }
+
+    /**
+     * A metric replaced by a new one of the same name is not removing the new one.
+     */
+    @Test
+    public void testRemove() throws MetricException {
+        System.out.println("remove");
+        repo.remove(size);
+        Metric replacement = newMetric("repository_test_size");
+        repo.add(replacement);
+        repo.remove(size);
+        assertSame(replacement, repo.get("repository_test_size"));
+        size = replacement;
+    }
+}
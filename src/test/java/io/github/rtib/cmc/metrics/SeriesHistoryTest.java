@@ -0,0 +1,106 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.metrics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public class SeriesHistoryTest {
+
+    public SeriesHistoryTest() {
+    }
+
+    private static List<String> samples(SeriesHistory history, long from, long to) {
+        List<String> result = new ArrayList<>();
+        history.forEach(from, to, (timestamp, value) -> result.add(value + "@" + timestamp));
+        return result;
+    }
+
+    /**
+     * Samples are decoded as appended, irregular timestamps and arbitrary
+     * values included.
+     */
+    @Test
+    public void testAppend() {
+        System.out.println("append");
+        SeriesHistory history = new SeriesHistory(Duration.ofDays(1));
+        Random random = new Random(42);
+        List<String> expected = new ArrayList<>();
+        long timestamp = 1_700_000_000_000L;
+        double[] values = {0, 1, 1, -1, Double.NaN, Double.MAX_VALUE, Double.MIN_VALUE, 0.1, Double.NEGATIVE_INFINITY};
+        for (int i = 0; i < 500; i++) {
+            timestamp += i % 50 == 0 ? random.nextInt(10_000_000) : 60_000 + random.nextInt(5000) - 2500;
+            double value = i < values.length ? values[i] : random.nextInt(3) == 0 ? random.nextGaussian() : i / 10;
+            history.append(timestamp, value);
+            expected.add(value + "@" + timestamp);
+        }
+        history.append(timestamp, 5);
+        assertEquals(expected, samples(history, Long.MIN_VALUE, Long.MAX_VALUE));
+        assertEquals(500, history.size());
+    }
+
+    /**
+     * Regular samples of slowly changing values take about one to two bytes.
+     */
+    @Test
+    public void testCompression() {
+        System.out.println("compression");
+        SeriesHistory history = new SeriesHistory(Duration.ofDays(1));
+        for (int i = 0; i < 1000; i++)
+            history.append(1_700_000_000_000L + i * 60_000L + (i % 3), 1000 + i / 7);
+        assertTrue(history.sizeInBytes() < 2 * history.size());
+    }
+
+    /**
+     * Chunks older than the retention are dropped.
+     */
+    @Test
+    public void testRetention() {
+        System.out.println("retention");
+        SeriesHistory history = new SeriesHistory(Duration.ofHours(1));
+        for (int i = 0; i < 1000; i++)
+            history.append(i * 60_000L, i);
+        assertTrue(history.size() >= 60);
+        assertTrue(history.size() < 60 + 2 * 120);
+        assertEquals(List.of("999.0@" + 999 * 60_000L), samples(history, 999 * 60_000L, Long.MAX_VALUE));
+    }
+
+    /**
+     * Rate of a counter with a reset.
+     */
+    @Test
+    public void testRate() {
+        System.out.println("rate");
+        SeriesHistory history = new SeriesHistory(Duration.ofHours(1));
+        history.append(0, 100);
+        history.append(60_000, 160);
+        history.append(120_000, 30);
+        history.append(180_000, 90);
+        assertEquals(90.0 / 120, history.rate(Duration.ofMinutes(2)), 1e-9);
+        assertEquals(150.0 / 180, history.rate(Duration.ofMinutes(5)), 1e-9);
+        assertEquals(60.0 / 60, history.rate(0, 60_000), 1e-9);
+        assertTrue(Double.isNaN(history.rate(60_000, 119_999)));
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2024-2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.metrics;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public class SeriesStoreTest {
+
+    private SeriesStore store;
+
+    public SeriesStoreTest() {
+    }
+
+    @Before
+    public void setUp() {
+        store = new SeriesStore();
+    }
+
+    private static List<Label> labels(int i) throws MetricException {
+        return new LabelListBuilder()
+                .addLabel("series", Integer.toString(i))
+                .build();
+    }
+
+    private List<String> samples() {
+        List<String> result = new ArrayList<>();
+        store.forEach((labels, value, timestamp) -> result.add(labels.get(0).value() + "=" + value + "@" + timestamp));
+        return result;
+    }
+
+    /**
+     * Series are listed in order of slots, only once having a value.
+     */
+    @Test
+    public void testSet() throws MetricException {
+        System.out.println("set");
+        for (int i = 0; i < 100; i++)
+            store.add(labels(i));
+        assertSame(store.handle(labels(5)), store.add(labels(5)));
+        store.set(store.handle(labels(70)), 7.0, 2);
+        store.set(store.handle(labels(3)), 3.0, 1);
+        assertEquals(List.of("3=3.0@1", "70=7.0@2"), samples());
+        assertEquals(100, store.size());
+    }
+
+    /**
+     * Slots of removed series are reused without their former value, handles
+     * of removed series are invalid.
+     */
+    @Test
+    public void testRemove() throws MetricException {
+        System.out.println("remove");
+        SeriesHandle removed = store.add(labels(1));
+        store.set(removed, 1.0, 1);
+        store.remove(labels(1));
+        assertNull(store.handle(labels(1)));
+        SeriesHandle reused = store.add(labels(2));
+        assertEquals(removed.id, reused.id);
+        assertEquals(List.of(), samples());
+        store.set(removed, 1.0, 1);
+        assertEquals(List.of(), samples());
+        store.set(reused, 2.0, 2);
+        assertEquals(List.of("2=2.0@2"), samples());
+    }
+
+    /**
+     * The prefix of a series is rendered once when added, and reused
+     * while iterating.
+     */
+    @Test
+    public void testForEachPrefixed() throws MetricException {
+        System.out.println("forEachPrefixed");
+        List<List<Label>> rendered = new ArrayList<>();
+        SeriesStore prefixed = new SeriesStore(labels -> {
+            rendered.add(labels);
+            return ("m{" + labels.get(0) + "}").getBytes(StandardCharsets.UTF_8);
+        }, false, Duration.ZERO);
+        SeriesHandle handle = prefixed.add(labels(1));
+        prefixed.add(labels(1));
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            prefixed.set(handle, i, i + 1);
+            prefixed.forEachPrefixed((labels, prefix, value, timestamp) -> result.add(new String(prefix, StandardCharsets.UTF_8) + " " + value));
+        }
+        assertEquals(List.of("m{series=\"1\"} 0.0", "m{series=\"1\"} 1.0"), result);
+        assertEquals(1, rendered.size());
+    }
+
+    /**
+     * Series not updated since are evicted, their handles revive them.
+     */
+    @Test
+    public void testEvict() throws MetricException {
+        System.out.println("evict");
+        long now = System.currentTimeMillis();
+        SeriesHandle stale = store.add(labels(1));
+        SeriesHandle fresh = store.add(labels(2));
+        store.add(labels(3));
+        store.set(stale, 1.0, 1);
+        store.set(fresh, 2.0, now);
+        assertEquals(1, store.evict(now - 1000));
+        assertNull(store.handle(labels(1)));
+        assertEquals(List.of("2=2.0@" + now), samples());
+        store.set(stale, 3.0, now + 1);
+        assertEquals(List.of("1=3.0@" + (now + 1), "2=2.0@" + now), samples());
+        assertEquals(3, store.evict(Long.MAX_VALUE));
+        assertEquals(0, store.size());
+    }
+
+    /**
+     * Series evicted repeatedly are revived by the original handle without
+     * chaining successors.
+     */
+    @Test
+    public void testEvictRepeatedly() throws MetricException {
+        System.out.println("evictRepeatedly");
+        SeriesHandle handle = store.add(labels(1));
+        for (int i = 1; i <= 100; i++) {
+            assertEquals(1, store.evict(Long.MAX_VALUE));
+            store.set(handle, i, i);
+            assertNull(handle.successor.successor);
+            assertSame(store.handle(labels(1)), handle.successor);
+        }
+        assertEquals(List.of("1=100.0@100"), samples());
+    }
+
+    /**
+     * Values and timestamps held off heap are read back as written.
+     */
+    @Test
+    public void testOffHeap() throws MetricException {
+        System.out.println("offHeap");
+        store = new SeriesStore(labels -> new byte[0], true, Duration.ZERO);
+        for (int i = 0; i < 100; i++)
+            store.add(labels(i));
+        store.set(store.handle(labels(70)), -7.5, 2);
+        store.set(store.handle(labels(3)), Double.NaN, Long.MAX_VALUE);
+        assertEquals(List.of("3=NaN@" + Long.MAX_VALUE, "70=-7.5@2"), samples());
+        store.remove(labels(70));
+        assertEquals(List.of("3=NaN@" + Long.MAX_VALUE), samples());
+        assertEquals(0, store.evict(System.currentTimeMillis() - 60000));
+        assertEquals(98, store.evict(Long.MAX_VALUE - 1));
+    }
+
+    /**
+     * Samples are read with the timestamp they were written with, and stale
+     * handles never write into a reused slot.
+     */
+    @Test
+    public void testConcurrentWrites() throws Exception {
+        System.out.println("concurrentWrites");
+        List<Label> written = labels(1);
+        store.add(written);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            for (long i = 1; running.get(); i++) {
+                SeriesHandle handle = store.handle(written);
+                if (handle != null)
+                    store.set(handle, -i, i);
+            }
+        });
+        writer.start();
+        try {
+            for (int round = 0; round < 1000; round++) {
+                store.remove(written);
+                SeriesHandle reused = store.add(labels(2));
+                store.set(reused, round, round + 1);
+                store.forEach((labels, value, timestamp) -> assertTrue(value >= 0 && timestamp == value + 1));
+                store.remove(reused.labels);
+                store.add(written);
+                store.forEach((labels, value, timestamp) -> assertEquals(-value, timestamp, 0));
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2025 Tibor Répási <rtib@users.noreply.github.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.rtib.cmc.metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tibor Répási {@literal <rtib@users.noreply.github.com>}
+ */
+public class SnapshotTest {
+
+    private Metric metric;
+    private SeriesHandle first;
+    private SeriesHandle second;
+
+    public SnapshotTest() {
+    }
+
+    @Before
+    public void setUp() throws MetricException {
+        metric = new Metric.Builder()
+                .withName("snapshot_test")
+                .withHelp("test")
+                .withType(MetricType.GAUGE)
+                .build();
+        first = metric.addInstance(new LabelListBuilder().addLabel("quantile", "0.5").build());
+        second = metric.addInstance(new LabelListBuilder().addLabel("quantile", "0.99").build());
+        Repository.getInstance().add(metric);
+    }
+
+    @After
+    public void tearDown() {
+        Repository.getInstance().remove(metric);
+    }
+
+    private MetricSnapshot capture() {
+        return Repository.getInstance().snapshot().getMetrics().stream()
+                .filter(m -> m.getMetric() == metric)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    /**
+     * Test of publishing a batch and writing its snapshot.
+     */
+    @Test
+    public void testPublish() throws IOException {
+        System.out.println("publish");
+        assertEquals(0, capture().size());
+        new SampleBatch()
+                .add(first, 1.0)
+                .add(second, 2.0)
+                .publish();
+        MetricSnapshot snapshot = capture();
+        metric.setValue(first, 3.0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.writeInstances(out);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("snapshot_test{quantile=\"0.5\"} 1.0 "));
+        assertTrue(lines[1].startsWith("snapshot_test{quantile=\"0.99\"} 2.0 "));
+    }
+
+    /**
+     * Test of writing a snapshot in OpenMetrics format.
+     */
+    @Test
+    public void testOpenMetrics() throws IOException, MetricException {
+        System.out.println("openMetrics");
+        Metric count = new Metric.Builder()
+                .withName("snapshot_test_requests_total")
+                .withHelp("test \"count\"")
+                .withType(MetricType.COUNTER)
+                .build();
+        Metric summary = new Metric.Builder()
+                .withName("snapshot_test_latency")
+                .withHelp("test")
+                .withType(MetricType.SUMMARY)
+                .withSummaryCount(count)
+                .build();
+        List<Label> table = new LabelListBuilder().addLabel("table", "t").build();
+        SeriesHandle requests = count.addInstance(table);
+        SeriesHandle p50th = summary.addInstance(new LabelListBuilder().addLabels(table).addLabel("quantile", "0.5").build());
+        new SampleBatch()
+                .add(requests, 42)
+                .add(p50th, Double.POSITIVE_INFINITY)
+                .publish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Repository.getInstance().snapshot(List.of(count, summary)).write(out, ExpositionFormat.OPENMETRICS);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(8, lines.length);
+        assertEquals("# HELP snapshot_test_requests test \\\"count\\\"", lines[0]);
+        assertEquals("# TYPE snapshot_test_requests counter", lines[1]);
+        assertTrue(lines[2].matches("snapshot_test_requests_total\\{table=\"t\"\\} 42\\.0 \\d+\\.\\d{3}"));
+        assertEquals("# TYPE snapshot_test_latency summary", lines[4]);
+        assertTrue(lines[5].startsWith("snapshot_test_latency{table=\"t\",quantile=\"0.5\"} +Inf "));
+        assertTrue(lines[6].startsWith("snapshot_test_latency_count{table=\"t\"} 42.0 "));
+        assertEquals("# EOF", lines[7]);
+    }
+
+    /**
+     * Test of writing a snapshot as length delimited protobuf messages.
+     */
+    @Test
+    public void testProtobuf() throws IOException, MetricException {
+        System.out.println("protobuf");
+        Metric count = new Metric.Builder()
+                .withName("snapshot_test_requests")
+                .withHelp("test")
+                .withType(MetricType.COUNTER)
+                .withCommonLabel("node", "n1")
+                .build();
+        Metric empty = new Metric.Builder()
+                .withName("snapshot_test_empty")
+                .withHelp("test")
+                .build();
+        SeriesHandle requests = count.addInstance(new LabelListBuilder().addLabel("table", "t").build());
+        count.setValue(requests, 300);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Repository.getInstance().snapshot(List.of(count, empty)).write(out, ExpositionFormat.PROTOBUF);
+        ByteBuffer in = ByteBuffer.wrap(out.toByteArray());
+        int length = (int) readVarint(in);
+        assertEquals(in.remaining(), length);
+        List<String> family = new ArrayList<>();
+        while (in.hasRemaining()) {
+            long tag = readVarint(in);
+            if (tag == (4 << 3 | 2)) {
+                ByteBuffer metric = readBytes(in);
+                while (metric.hasRemaining()) {
+                    long field = readVarint(metric);
+                    if (field == (1 << 3 | 2)) {
+                        ByteBuffer pair = readBytes(metric);
+                        readVarint(pair);
+                        String name = StandardCharsets.UTF_8.decode(readBytes(pair)).toString();
+                        readVarint(pair);
+                        family.add(name + "=" + StandardCharsets.UTF_8.decode(readBytes(pair)));
+                    } else if (field == (3 << 3 | 2)) {
+                        ByteBuffer counter = readBytes(metric);
+                        assertEquals(1 << 3 | 1, readVarint(counter));
+                        family.add("counter " + counter.order(ByteOrder.LITTLE_ENDIAN).getDouble());
+                    } else {
+                        assertEquals(6 << 3, field);
+                        assertTrue(readVarint(metric) > 0);
+                    }
+                }
+            } else if (tag == (3 << 3)) {
+                family.add("type " + readVarint(in));
+            } else {
+                family.add(StandardCharsets.UTF_8.decode(readBytes(in)).toString());
+            }
+        }
+        assertEquals(List.of("snapshot_test_requests", "test", "type 0", "node=n1", "table=t", "counter 300.0"), family);
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+    }
+
+    private static ByteBuffer readBytes(ByteBuffer in) {
+        int size = (int) readVarint(in);
+        ByteBuffer bytes = in.slice().limit(size);
+        in.position(in.position() + size);
+        return bytes;
+    }
+
+    /**
+     * Snapshots published by epochs never contain a partially published batch.
+     */
+    @Test
+    public void testConsistency() throws Exception {
+        System.out.println("consistency");
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread publisher = new Thread(() -> {
+            for (long i = 1; running.get(); i++)
+                new SampleBatch(2).add(first, i).add(second, i).publish();
+        });
+        publisher.start();
+        try {
+            for (int i = 0; i < 1000; i++) {
+                Repository.getInstance().advanceEpoch();
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                capture().writeInstances(out);
+                List<String> values = out.toString(StandardCharsets.UTF_8).lines()
+                        .map(line -> line.split(" ")[1])
+                        .collect(Collectors.toList());
+                if (values.size() == 2)
+                    assertEquals(values.get(0), values.get(1));
+            }
+        } finally {
+            running.set(false);
+            publisher.join();
+        }
+    }
+
+    /**
+     * Samples written within an epoch are exposed once it advances, unmodified
+     * metrics keep their snapshot.
+     */
+    @Test
+    public void testEpoch() {
+        System.out.println("epoch");
+        Repository repo = Repository.getInstance();
+        metric.setValue(first, 1.0);
+        repo.advanceEpoch();
+        MetricSnapshot published = capture();
+        assertEquals(1, published.size());
+        metric.setValue(second, 2.0);
+        assertSame(published, capture());
+        repo.advanceEpoch();
+        MetricSnapshot next = capture();
+        assertEquals(2, next.size());
+        repo.advanceEpoch();
+        assertSame(next, capture());
+    }
+}